@@ -0,0 +1,277 @@
+/*
+ * JMH benchmarks of each stage of the RE >> NFA >> DFA pipeline, measured
+ * separately: parsing (buildSyntaxTree), NFA construction (RE2NFA, which
+ * includes parsing), subset construction (NFA2DFA), minimization, and
+ * matching (testInput, and compiledMatch for the DFA compiled to bytecode).
+ * Patterns are the valid res/reNIn.txt expressions plus
+ * generated large ones; the pipeline's console output is discarded while
+ * benchmarking.
+ * 
+ * JMH requires benchmarks to be in a named package, which cannot refer to the
+ * program's classes in the default package, so the pipeline is reached
+ * through constant MethodHandles (which the JIT inlines like direct calls).
+ */
+
+package benchmarks;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+	static final MethodHandle NEW_EXPRESSION;
+	static final MethodHandle BUILD_SYNTAX_TREE;
+	static final MethodHandle RE2NFA;
+	static final MethodHandle NFA2DFA;
+	static final MethodHandle SET_CLOSURE;
+	static final MethodHandle MINIMIZE;
+	static final MethodHandle TEST_INPUT;
+	static final MethodHandle COMPILE;
+	static final MethodHandle MATCHES;
+
+	static {
+		try {
+			Class<?> parser = Class.forName("RegularExpressionParser");
+			Class<?> re = Class.forName("RegularExpression");
+			Class<?> nfa = Class.forName("NFA");
+			Class<?> dfa = Class.forName("DFA");
+			Class<?> matcher = Class.forName("Matcher");
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+			NEW_EXPRESSION = erase(lookup.unreflectConstructor(accessible(re
+					.getDeclaredConstructor(ArrayList.class, String.class))));
+			BUILD_SYNTAX_TREE = erase(lookup.unreflect(accessible(parser
+					.getDeclaredMethod("buildSyntaxTree", re))));
+			RE2NFA = erase(lookup.unreflect(accessible(parser
+					.getDeclaredMethod("RE2NFA", re))));
+			NFA2DFA = erase(lookup.unreflect(accessible(parser
+					.getDeclaredMethod("NFA2DFA", nfa))));
+			SET_CLOSURE = erase(lookup.unreflectSetter(accessible(nfa
+					.getDeclaredField("closure"))));
+			MINIMIZE = erase(lookup.unreflect(accessible(dfa
+					.getDeclaredMethod("minimize"))));
+			TEST_INPUT = lookup.unreflect(
+					accessible(parser.getDeclaredMethod("testInput", dfa,
+							String.class))).asType(
+					MethodType.methodType(boolean.class, Object.class,
+							String.class));
+			COMPILE = erase(lookup.unreflect(accessible(Class.forName(
+					"DFACompiler").getDeclaredMethod("compile", dfa))));
+			MATCHES = lookup.unreflect(
+					accessible(matcher.getDeclaredMethod("matches",
+							String.class))).asType(
+					MethodType.methodType(boolean.class, Object.class,
+							String.class));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/*
+	 * The expression under test, with every stage of the pipeline prepared
+	 * ahead of time so that each benchmark only measures its own stage
+	 */
+	@State(Scope.Benchmark)
+	public static class Pattern {
+		@Param({ "re1", "re2", "re3", "re4", "re5", "re6", "re7", "re8",
+				"re9", "re10", "re11", "re12", "re17", "re18", "tail10",
+				"stars200" })
+		public String pattern;
+
+		public String alphabet;
+		public String expression;
+		public Object parsed;
+		public Object nfa;
+		public Object dfa;
+		public Object minimal;
+		public Object compiled;
+		private PrintStream out;
+
+		@Setup(Level.Trial)
+		public void setup() throws Throwable {
+			out = System.out;
+			System.setOut(new PrintStream(new OutputStream() {
+				public void write(int b) {
+				}
+			}));
+
+			load(pattern);
+			parsed = newExpression(alphabet, expression);
+			nfa = (Object) RE2NFA.invokeExact(newExpression(alphabet,
+					expression));
+			dfa = (Object) NFA2DFA.invokeExact(nfa);
+			minimal = (Object) MINIMIZE.invokeExact(dfa);
+			compiled = (Object) COMPILE.invokeExact(minimal);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			System.setOut(out);
+		}
+
+		/*
+		 * Purpose: loads a benchmark expression, either from the res directory
+		 * (set with -Dres.dir, default "res") or generated
+		 * 
+		 * @param name the name of the expression
+		 */
+		private void load(String name) throws Exception {
+			if (name.equals("tail10")) {
+				// the 11th symbol from the end is a 1: 2^11 DFA states
+				alphabet = "01";
+				expression = "(0|1)*1";
+				for (int i = 0; i < 10; i++) {
+					expression += "(0|1)";
+				}
+			} else if (name.equals("stars200")) {
+				// at least 200 a's: a large NFA with large state sets
+				alphabet = "ab";
+				expression = "";
+				for (int i = 0; i < 200; i++) {
+					expression += "(a|b)*a";
+				}
+			} else {
+				BufferedReader br = new BufferedReader(new FileReader(
+						System.getProperty("res.dir", "res") + "/" + name
+								+ "In.txt"));
+				alphabet = br.readLine();
+				expression = br.readLine();
+				br.close();
+			}
+		}
+	}
+
+	/*
+	 * A random test string over the alphabet of the expression under test
+	 */
+	@State(Scope.Benchmark)
+	public static class Input {
+		@Param({ "100", "100000" })
+		public int length;
+
+		public String input;
+
+		@Setup(Level.Trial)
+		public void setup(Pattern pattern) {
+			Random random = new Random(length);
+			StringBuilder sb = new StringBuilder(length);
+			for (int i = 0; i < length; i++) {
+				sb.append(pattern.alphabet.charAt(random
+						.nextInt(pattern.alphabet.length())));
+			}
+			input = sb.toString();
+		}
+	}
+
+	@Benchmark
+	public Object buildSyntaxTree(Pattern p) throws Throwable {
+		return (Object) BUILD_SYNTAX_TREE.invokeExact(p.parsed);
+	}
+
+	@Benchmark
+	public Object RE2NFA(Pattern p) throws Throwable {
+		// a fresh expression, so that its symbol classes are computed again
+		return (Object) RE2NFA.invokeExact(newExpression(p.alphabet,
+				p.expression));
+	}
+
+	@Benchmark
+	public Object NFA2DFA(Pattern p) throws Throwable {
+		// the adjacency index and closures are part of the subset construction
+		SET_CLOSURE.invokeExact(p.nfa, (Object) null);
+		return (Object) NFA2DFA.invokeExact(p.nfa);
+	}
+
+	@Benchmark
+	public Object minimize(Pattern p) throws Throwable {
+		return (Object) MINIMIZE.invokeExact(p.dfa);
+	}
+
+	@Benchmark
+	public boolean testInput(Pattern p, Input in) throws Throwable {
+		return (boolean) TEST_INPUT.invokeExact(p.minimal, in.input);
+	}
+
+	@Benchmark
+	public boolean compiledMatch(Pattern p, Input in) throws Throwable {
+		// the table is matched instead where the DFA is too large to compile
+		if (p.compiled == null) {
+			return (boolean) TEST_INPUT.invokeExact(p.minimal, in.input);
+		}
+		return (boolean) MATCHES.invokeExact(p.compiled, in.input);
+	}
+
+	/*
+	 * Purpose: builds a RegularExpression object
+	 * 
+	 * @param alphabet the alphabet, one character per symbol
+	 * 
+	 * @param expression the text of the expression
+	 * 
+	 * @return the RegularExpression object
+	 */
+	static Object newExpression(String alphabet, String expression)
+			throws Throwable {
+		ArrayList<Character> characters = new ArrayList<Character>();
+		for (int i = 0; i < alphabet.length(); i++) {
+			characters.add(alphabet.charAt(i));
+		}
+		return (Object) NEW_EXPRESSION.invokeExact(characters, expression);
+	}
+
+	/*
+	 * Purpose: makes a package-private member of the program accessible
+	 */
+	private static <T extends AccessibleObject> T accessible(T member) {
+		member.setAccessible(true);
+		return member;
+	}
+
+	/*
+	 * Purpose: erases every parameter and the return type of a handle to
+	 * Object (keeping void and primitive types), so that it can be invoked
+	 * exactly without naming the program's classes
+	 */
+	private static MethodHandle erase(MethodHandle handle) {
+		MethodType type = handle.type();
+		for (int i = 0; i < type.parameterCount(); i++) {
+			if (!type.parameterType(i).isPrimitive()
+					&& type.parameterType(i) != String.class
+					&& type.parameterType(i) != ArrayList.class) {
+				type = type.changeParameterType(i, Object.class);
+			}
+		}
+		if (!type.returnType().isPrimitive()
+				&& type.returnType() != String.class) {
+			type = type.changeReturnType(Object.class);
+		}
+		return handle.asType(type);
+	}
+}
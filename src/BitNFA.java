@@ -0,0 +1,136 @@
+/*
+ * Object representation of a bit-parallel simulation of an NFA: the set of
+ * active NFA states is a long[] bitset, and each step ORs together
+ * precomputed masks, so no DFA is ever built. Every mask is already closed
+ * under epsilon transitions.
+ */
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+class BitNFA implements Matcher {
+	public int size;
+	public int words;
+
+	private int k;
+	private int[] symbolIndex;
+	private long[] start;
+	private long[] accept;
+
+	// symbolMask[s] holds the states with at least one edge on symbol s, and
+	// the closure of the s-successors of state q is the mask at word offset
+	// follow[followIndex[s * size + q] * words]
+	private long[][] symbolMask;
+	private int[] followIndex;
+	private long[] follow;
+
+	public BitNFA(NFA nfa) {
+		if (nfa.closure == null) {
+			nfa.buildIndex();
+		}
+		k = nfa.alphabet.size();
+		size = nfa.closure.length;
+		words = (size + 63) / 64;
+
+		symbolIndex = nfa.symbolIndex;
+
+		start = toWords(nfa.closure[nfa.startState]);
+		BitSet accepting = new BitSet();
+		for (Integer i : nfa.endStates) {
+			accepting.set(i.intValue());
+		}
+		accept = toWords(accepting);
+
+		symbolMask = new long[k][words];
+		followIndex = new int[k * size];
+		Arrays.fill(followIndex, -1);
+		int count = 0;
+		for (int s = 0; s < k; s++) {
+			for (int q = 0; q < size; q++) {
+				if (nfa.symbolStart[q * k + s] < nfa.symbolStart[q * k + s + 1]) {
+					symbolMask[s][q >> 6] |= 1L << q;
+					followIndex[s * size + q] = count++;
+				}
+			}
+		}
+		follow = new long[count * words];
+		for (int s = 0; s < k; s++) {
+			for (int q = 0; q < size; q++) {
+				int index = followIndex[s * size + q];
+				if (index < 0) {
+					continue;
+				}
+				BitSet reached = new BitSet(size);
+				int row = q * k + s;
+				for (int j = nfa.symbolStart[row]; j < nfa.symbolStart[row + 1]; j++) {
+					reached.or(nfa.closure[nfa.symbolEnd[j]]);
+				}
+				long[] mask = toWords(reached);
+				System.arraycopy(mask, 0, follow, index * words, words);
+			}
+		}
+	}
+
+	/*
+	 * Purpose: tests the input by stepping the set of active NFA states
+	 * 
+	 * @param input the input to be tested
+	 * 
+	 * @return a boolean which represents if the string input is in the
+	 * language
+	 */
+	public boolean matches(String input) {
+		long[] current = start.clone();
+		long[] next = new long[words];
+		int length = input.length();
+
+		for (int index = 0; index < length; index++) {
+			char c = input.charAt(index);
+			if (c >= symbolIndex.length || symbolIndex[c] < 0) {
+				continue;
+			}
+			int s = symbolIndex[c];
+			long[] mask = symbolMask[s];
+			Arrays.fill(next, 0L);
+			boolean alive = false;
+			for (int w = 0; w < words; w++) {
+				long bits = current[w] & mask[w];
+				while (bits != 0) {
+					int q = (w << 6) + Long.numberOfTrailingZeros(bits);
+					int offset = followIndex[s * size + q] * words;
+					for (int j = 0; j < words; j++) {
+						next[j] |= follow[offset + j];
+					}
+					alive = true;
+					bits &= bits - 1;
+				}
+			}
+
+			// no active states left, so no continuation can be accepted
+			if (!alive) {
+				return false;
+			}
+			long[] temp = current;
+			current = next;
+			next = temp;
+		}
+
+		for (int w = 0; w < words; w++) {
+			if ((current[w] & accept[w]) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Purpose: copies a BitSet into a long[] of exactly words entries
+	 * 
+	 * @param set the BitSet to be copied
+	 * 
+	 * @return the long[] representation of set
+	 */
+	private long[] toWords(BitSet set) {
+		return Arrays.copyOf(set.toLongArray(), words);
+	}
+}
@@ -1,13 +1,34 @@
 /*
  * Object representation of a Deterministic Finite Automaton (DFA)
  */
-class DFA {
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+class DFA implements Matcher {
 	public int numStates;
 	public ArrayList<Character> alphabet;
 	public ArrayList<Transition> transitionFunction;
 	public int startState;
 	public ArrayList<Integer> endStates;
 
+	// compiled form of the transition function and accept states, indexed by
+	// state number and by symbol index (see symbolIndex): the transition of
+	// state q on symbol s is table[q * alphabet.size() + s]. The alphabet may
+	// hold one character per symbol class, in which case symbolIndex maps
+	// every character of a class to the same symbol
+	public int[] table;
+	public boolean[] accept;
+	public int[] symbolIndex;
+
+	// states from which no accept state can be reached (dead) and states from
+	// which only accept states can be reached (universal), found by
+	// findSinks() - once a computation enters either kind (absorbing), the
+	// rest of the input cannot change its result
+	public boolean[] dead;
+	public boolean[] universal;
+	public boolean[] absorbing;
+
 	public DFA() {
 		numStates = 0;
 		alphabet = null;
@@ -19,11 +40,388 @@ class DFA {
 	public DFA(int numStates, ArrayList<Character> alphabet,
 			ArrayList<Transition> transitionFunction, int startState,
 			ArrayList<Integer> endStates) {
+		this(numStates, alphabet, null, transitionFunction, startState,
+				endStates);
+	}
+
+	public DFA(int numStates, ArrayList<Character> alphabet,
+			int[] symbolIndex, ArrayList<Transition> transitionFunction,
+			int startState, ArrayList<Integer> endStates) {
 		this.numStates = numStates;
+		this.symbolIndex = symbolIndex;
 		this.alphabet = alphabet;
 		this.transitionFunction = transitionFunction;
 		this.startState = startState;
 		this.endStates = endStates;
+		buildTable();
+	}
+
+	public DFA(int numStates, ArrayList<Character> alphabet,
+			int[] symbolIndex, int[] table, boolean[] accept, int startState) {
+		this.numStates = numStates;
+		this.alphabet = alphabet;
+		this.transitionFunction = null;
+		this.startState = startState;
+		this.endStates = null;
+		this.table = table;
+		this.accept = accept;
+		this.symbolIndex = symbolIndex;
+		if (symbolIndex == null) {
+			buildSymbolIndex();
+		}
+		findSinks();
+	}
+
+	/*
+	 * Purpose: compiles the transition function and accept states into
+	 * primitive arrays, so that a computation needs a single array lookup per
+	 * input character
+	 */
+	public void buildTable() {
+		int k = alphabet.size();
+		if (symbolIndex == null) {
+			buildSymbolIndex();
+		}
+
+		// states are numbered from 1, so row 0 is left unused
+		table = new int[(numStates + 1) * k];
+		for (Transition t : transitionFunction) {
+			int symbol = t.input < symbolIndex.length ? symbolIndex[t.input]
+					: -1;
+			if (symbol >= 0 && t.start <= numStates) {
+				table[t.start * k + symbol] = t.end;
+			}
+		}
+
+		accept = new boolean[numStates + 1];
+		for (Integer i : endStates) {
+			accept[i.intValue()] = true;
+		}
+		findSinks();
+	}
+
+	/*
+	 * Purpose: finds the dead, universal and absorbing states of the table
+	 */
+	public void findSinks() {
+		int n = numStates;
+		boolean[] rejecting = new boolean[n + 1];
+		for (int q = 0; q <= n; q++) {
+			rejecting[q] = !accept[q];
+		}
+		boolean[] live = canReach(accept);
+		boolean[] partial = canReach(rejecting);
+		dead = new boolean[n + 1];
+		universal = new boolean[n + 1];
+		absorbing = new boolean[n + 1];
+		for (int q = 0; q <= n; q++) {
+			dead[q] = !live[q];
+			universal[q] = !partial[q];
+			absorbing[q] = dead[q] || universal[q];
+		}
+	}
+
+	/*
+	 * Purpose: finds the states from which a set of target states can be
+	 * reached, by a breadth first search backward from the targets (state 0,
+	 * the target of missing transitions, has no transitions of its own)
+	 * 
+	 * @param target a flag per state number, true for the target states
+	 * 
+	 * @return a flag per state number, true for the states that can reach a
+	 * target state (including the targets themselves)
+	 */
+	public boolean[] canReach(boolean[] target) {
+		int n = numStates;
+		int k = alphabet.size();
+
+		// predecessors of each state, as compressed rows
+		int[] inverseStart = new int[n + 2];
+		for (int q = 1; q <= n; q++) {
+			for (int a = 0; a < k; a++) {
+				inverseStart[table[q * k + a] + 1]++;
+			}
+		}
+		for (int i = 0; i <= n; i++) {
+			inverseStart[i + 1] += inverseStart[i];
+		}
+		int[] inverse = new int[inverseStart[n + 1]];
+		int[] inverseNext = Arrays.copyOf(inverseStart, n + 1);
+		for (int q = 1; q <= n; q++) {
+			for (int a = 0; a < k; a++) {
+				inverse[inverseNext[table[q * k + a]]++] = q;
+			}
+		}
+
+		boolean[] reached = new boolean[n + 1];
+		int[] queue = new int[n + 1];
+		int head = 0, tail = 0;
+		for (int q = 0; q <= n; q++) {
+			if (target[q]) {
+				reached[q] = true;
+				queue[tail++] = q;
+			}
+		}
+		while (head < tail) {
+			int q = queue[head++];
+			for (int i = inverseStart[q]; i < inverseStart[q + 1]; i++) {
+				if (!reached[inverse[i]]) {
+					reached[inverse[i]] = true;
+					queue[tail++] = inverse[i];
+				}
+			}
+		}
+		return reached;
+	}
+
+	/*
+	 * Purpose: builds the lookup from input characters to their index in the
+	 * alphabet (-1 for characters outside of the alphabet), when no symbol
+	 * classes were given
+	 */
+	public void buildSymbolIndex() {
+		int maxChar = -1;
+		for (Character c : alphabet) {
+			maxChar = Math.max(maxChar, c.charValue());
+		}
+		symbolIndex = new int[maxChar + 1];
+		Arrays.fill(symbolIndex, -1);
+		for (int i = 0; i < alphabet.size(); i++) {
+			symbolIndex[alphabet.get(i).charValue()] = i;
+		}
+	}
+
+	/*
+	 * Purpose: estimates the memory held by this DFA, counting its transition
+	 * function and its compiled table
+	 * 
+	 * @return the approximate size of this DFA in bytes
+	 */
+	public long memoryEstimate() {
+		long k = alphabet.size();
+		long bytes = 64 + 16 * k;
+		if (transitionFunction != null) {
+			bytes += (long) transitionFunction.size() * 32;
+		}
+		bytes += (long) (numStates + 1) * (4 * k + 4);
+		if (symbolIndex != null) {
+			bytes += 4L * symbolIndex.length;
+		}
+		return bytes;
+	}
+
+	/*
+	 * Purpose: tests the input on this DFA
+	 * 
+	 * @param input the input to be tested
+	 * 
+	 * @return a boolean which represents if the string input is in the
+	 * language
+	 */
+	public boolean matches(String input) {
+		return RegularExpressionParser.testInput(this, input);
+	}
+
+	/*
+	 * Purpose: builds the minimal DFA equivalent to this one, using Hopcroft's
+	 * partition refinement - states start split into accepting and rejecting
+	 * blocks, and blocks are split by their predecessors on each symbol until
+	 * no block can be split further
+	 * 
+	 * @return the minimal DFA, with states numbered from 1 in breadth first
+	 * order from the start state
+	 */
+	public DFA minimize() {
+		if (table == null) {
+			buildTable();
+		}
+		int[] label = new int[numStates + 1];
+		for (int q = 1; q <= numStates; q++) {
+			label[q] = accept[q] ? 1 : 0;
+		}
+		return minimize(label, null);
+	}
+
+	/*
+	 * Purpose: builds the minimal DFA equivalent to this one in which states
+	 * are only merged if they have the same label, for automata whose accept
+	 * states differ by what they accept (such as a set of patterns)
+	 * 
+	 * @param label the label of each state, from 0 to numStates; the states
+	 * with a label other than 0 are the accept states
+	 * 
+	 * @param minimalLabel receives the label of each state of the minimal DFA
+	 * (room for numStates + 1 entries), or null
+	 * 
+	 * @return the minimal DFA, with states numbered from 1 in breadth first
+	 * order from the start state
+	 */
+	public DFA minimize(int[] label, int[] minimalLabel) {
+		if (table == null) {
+			buildTable();
+		}
+		int n = numStates;
+		int k = alphabet.size();
+
+		// inverse transitions, as compressed rows indexed by (symbol, target)
+		int[] inverseStart = new int[k * (n + 1) + 1];
+		for (int q = 1; q <= n; q++) {
+			for (int a = 0; a < k; a++) {
+				inverseStart[a * (n + 1) + table[q * k + a] + 1]++;
+			}
+		}
+		for (int i = 0; i < k * (n + 1); i++) {
+			inverseStart[i + 1] += inverseStart[i];
+		}
+		int[] inverse = new int[inverseStart[k * (n + 1)]];
+		int[] inverseNext = Arrays.copyOf(inverseStart, k * (n + 1));
+		for (int q = 1; q <= n; q++) {
+			for (int a = 0; a < k; a++) {
+				inverse[inverseNext[a * (n + 1) + table[q * k + a]]++] = q;
+			}
+		}
+
+		// each block is the range elements[first[b] .. end[b]), its marked
+		// states are kept at the front of the range
+		int[] elements = new int[n];
+		int[] location = new int[n + 1];
+		int[] block = new int[n + 1];
+		int[] first = new int[n];
+		int[] end = new int[n];
+		int[] marked = new int[n];
+		int numBlocks = 0;
+
+		// the initial blocks hold the states of each label, counting sorted
+		int[] labelBlock = new int[n + 1];
+		Arrays.fill(labelBlock, -1);
+		for (int q = 1; q <= n; q++) {
+			if (labelBlock[label[q]] < 0) {
+				labelBlock[label[q]] = numBlocks++;
+			}
+			end[labelBlock[label[q]]]++;
+		}
+		for (int b = 1; b < numBlocks; b++) {
+			end[b] += end[b - 1];
+		}
+		for (int q = n; q >= 1; q--) {
+			int b = labelBlock[label[q]];
+			location[q] = --end[b];
+			elements[location[q]] = q;
+			block[q] = b;
+		}
+		int largest = 0;
+		for (int b = 0; b < numBlocks; b++) {
+			first[b] = end[b];
+			end[b] = b + 1 < numBlocks ? end[b + 1] : n;
+			if (end[b] - first[b] > end[largest] - first[largest]) {
+				largest = b;
+			}
+		}
+
+		// worklist of (block, symbol) splitters, encoded as block * k + symbol;
+		// every initial block but the largest is a splitter
+		boolean[] waiting = new boolean[n * k];
+		int[] worklist = new int[n * k];
+		int pending = 0;
+		for (int b = 0; b < numBlocks; b++) {
+			for (int a = 0; a < k && b != largest; a++) {
+				waiting[b * k + a] = true;
+				worklist[pending++] = b * k + a;
+			}
+		}
+
+		int[] splitter = new int[n];
+		int[] touched = new int[n];
+		while (pending > 0) {
+			int entry = worklist[--pending];
+			waiting[entry] = false;
+			int b = entry / k;
+			int a = entry % k;
+
+			// copy the splitter first, since marking may reorder its block
+			int splitterSize = 0;
+			for (int i = first[b]; i < end[b]; i++) {
+				splitter[splitterSize++] = elements[i];
+			}
+
+			int numTouched = 0;
+			for (int i = 0; i < splitterSize; i++) {
+				int row = a * (n + 1) + splitter[i];
+				for (int j = inverseStart[row]; j < inverseStart[row + 1]; j++) {
+					int p = inverse[j];
+					int y = block[p];
+					int boundary = first[y] + marked[y];
+					if (location[p] < boundary) {
+						continue;
+					}
+					int other = elements[boundary];
+					elements[location[p]] = other;
+					location[other] = location[p];
+					elements[boundary] = p;
+					location[p] = boundary;
+					if (marked[y]++ == 0) {
+						touched[numTouched++] = y;
+					}
+				}
+			}
+
+			for (int t = 0; t < numTouched; t++) {
+				int y = touched[t];
+				int count = marked[y];
+				marked[y] = 0;
+				if (count == end[y] - first[y]) {
+					continue;
+				}
+
+				// the marked front of y becomes the new block z
+				int z = numBlocks++;
+				first[z] = first[y];
+				end[z] = first[y] + count;
+				first[y] = end[z];
+				for (int i = first[z]; i < end[z]; i++) {
+					block[elements[i]] = z;
+				}
+				int smaller = (count <= end[y] - first[y]) ? z : y;
+				for (int c = 0; c < k; c++) {
+					int add = waiting[y * k + c] ? z : smaller;
+					if (!waiting[add * k + c]) {
+						waiting[add * k + c] = true;
+						worklist[pending++] = add * k + c;
+					}
+				}
+			}
+		}
+
+		// number the blocks in breadth first order from the start state
+		int[] number = new int[numBlocks];
+		int[] queue = new int[numBlocks];
+		int head = 0, tail = 0;
+		number[block[startState]] = 1;
+		queue[tail++] = block[startState];
+		ArrayList<Transition> transitions = new ArrayList<Transition>();
+		ArrayList<Integer> ends = new ArrayList<Integer>();
+		while (head < tail) {
+			int b = queue[head++];
+			int q = elements[first[b]];
+			if (label[q] != 0) {
+				ends.add(Integer.valueOf(number[b]));
+			}
+			if (minimalLabel != null) {
+				minimalLabel[number[b]] = label[q];
+			}
+			for (int a = 0; a < k; a++) {
+				int target = block[table[q * k + a]];
+				if (number[target] == 0) {
+					number[target] = tail + 1;
+					queue[tail++] = target;
+				}
+				transitions.add(new Transition(number[b], alphabet.get(a)
+						.charValue(), number[target]));
+			}
+		}
+
+		return new DFA(tail, new Toolbox().cloneChar(alphabet), symbolIndex,
+				transitions, 1, ends);
 	}
 
 }
\ No newline at end of file
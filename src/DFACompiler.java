@@ -0,0 +1,496 @@
+/*
+ * Compiles a finished DFA into a class of its own, so that the JIT can
+ * optimize each expression separately: the matching loop switches on the
+ * state, and each state is a switch on the character read whose cases store
+ * the next state as a constant, so no table or symbol index is left to load.
+ * Entering a dead or universal state returns its answer at once, and
+ * characters outside of the alphabet fall through to the default of the
+ * switch, which stays in the same state.
+ * 
+ * The class is defined as a hidden class (Java 15 and later) or a plain class
+ * of the default package (Java 9 to 14) through a full privilege Lookup, and
+ * the classfile is written by hand, since the JDKs this program runs on offer
+ * no public bytecode library. Generated matchers hold no state, so they may be
+ * shared between threads.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class DFACompiler {
+
+	// the JIT never compiles a method of more bytecode than this
+	// (-XX:HugeMethodLimit), and interpreted code would be slower than the
+	// table
+	public static final int MAX_CODE = 8000;
+
+	// constant pool indexes of the classfile
+	private static final int THIS_CLASS = 2;
+	private static final int OBJECT_CLASS = 4;
+	private static final int MATCHER_CLASS = 6;
+	private static final int INIT_NAME = 7;
+	private static final int VOID_DESCRIPTOR = 8;
+	private static final int OBJECT_INIT = 10;
+	private static final int STRING_CLASS = 12;
+	private static final int STRING_LENGTH = 16;
+	private static final int STRING_CHAR_AT = 20;
+	private static final int MATCHES_NAME = 21;
+	private static final int MATCHES_DESCRIPTOR = 22;
+	private static final int CODE = 23;
+	private static final int STACK_MAP_TABLE = 24;
+
+	// opcodes
+	private static final int ICONST_0 = 0x03;
+	private static final int ICONST_1 = 0x04;
+	private static final int SIPUSH = 0x11;
+	private static final int ILOAD = 0x15;
+	private static final int ILOAD_2 = 0x1c;
+	private static final int ILOAD_3 = 0x1d;
+	private static final int ALOAD_0 = 0x2a;
+	private static final int ALOAD_1 = 0x2b;
+	private static final int ISTORE = 0x36;
+	private static final int ISTORE_2 = 0x3d;
+	private static final int ISTORE_3 = 0x3e;
+	private static final int IINC = 0x84;
+	private static final int IF_ICMPGE = 0xa2;
+	private static final int GOTO = 0xa7;
+	private static final int TABLESWITCH = 0xaa;
+	private static final int LOOKUPSWITCH = 0xab;
+	private static final int IRETURN = 0xac;
+	private static final int RETURN = 0xb1;
+	private static final int INVOKEVIRTUAL = 0xb6;
+	private static final int INVOKESPECIAL = 0xb7;
+
+	private static final AtomicInteger count = new AtomicInteger();
+	private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+	private static final Method defineHiddenClass;
+	private static final Object noOptions;
+	private static final Method defineClass;
+
+	static {
+		// looked up reflectively, so that the program still runs on Java 8
+		Method hidden = null, plain = null;
+		Object options = null;
+		try {
+			Class<?> option = Class
+					.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+			options = Array.newInstance(option, 0);
+			hidden = MethodHandles.Lookup.class.getMethod("defineHiddenClass",
+					byte[].class, boolean.class, options.getClass());
+		} catch (ReflectiveOperationException e) {
+		}
+		try {
+			plain = MethodHandles.Lookup.class.getMethod("defineClass",
+					byte[].class);
+		} catch (ReflectiveOperationException e) {
+		}
+		defineHiddenClass = hidden;
+		noOptions = options;
+		defineClass = plain;
+	}
+
+	private DFA dfa;
+	private int k;
+
+	// the bytecode being written, or null while only its layout is computed
+	private byte[] code;
+	private int pc;
+
+	// offsets of the loop, of the read of each state's switch, of the block
+	// entering each state, and of the end of the input and its answers
+	private int loopAt;
+	private int[] switchAt;
+	private int[] enterAt;
+	private int endAt;
+	private int rejectAt;
+	private int acceptAt;
+
+	// the offsets jumped to, which need a stack map frame, in increasing order
+	private int[] frames;
+	private int numFrames;
+
+	private DFACompiler(DFA dfa) {
+		this.dfa = dfa;
+		this.k = dfa.alphabet.size();
+		switchAt = new int[dfa.numStates + 1];
+		enterAt = new int[dfa.numStates + 1];
+		frames = new int[2 * dfa.numStates + 4];
+	}
+
+	/*
+	 * Purpose: compiles a DFA into a matcher class of its own
+	 * 
+	 * @param dfa the DFA, usually minimized
+	 * 
+	 * @return the matcher, or null if the DFA is too large for its matcher to
+	 * be compiled by the JIT, or if classes cannot be defined at runtime (Java
+	 * 8)
+	 */
+	public static Matcher compile(DFA dfa) {
+		if (dfa.table == null) {
+			dfa.buildTable();
+		}
+		if (defineClass == null && defineHiddenClass == null
+				|| 4 * dfa.numStates > MAX_CODE) {
+			return null;
+		}
+
+		// the first pass lays the code out, and the second writes it with
+		// every jump resolved
+		DFACompiler compiler = new DFACompiler(dfa);
+		compiler.emit();
+		if (compiler.pc > MAX_CODE) {
+			return null;
+		}
+		compiler.code = new byte[compiler.pc];
+		compiler.emit();
+
+		try {
+			String name = "CompiledDFA$" + count.incrementAndGet();
+			byte[] bytes = classFile(name, compiler.code, Arrays.copyOf(
+					compiler.frames, compiler.numFrames));
+			Class<?> c;
+			if (defineHiddenClass != null) {
+				c = ((MethodHandles.Lookup) defineHiddenClass.invoke(lookup,
+						bytes, Boolean.TRUE, noOptions)).lookupClass();
+			} else {
+				c = (Class<?>) defineClass.invoke(lookup, bytes);
+			}
+			return (Matcher) c.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("could not define the matcher of "
+					+ dfa.numStates + " states", e);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/*
+	 * Purpose: writes the bytecode of matches(String) - the locals are this,
+	 * the input, the index of the next character, the length of the input,
+	 * the state and the character read. The states are the cases of a
+	 * tableswitch in a single loop, so that the JIT compiles the loop (jumps
+	 * straight from state to state would not be counted as a loop); each case
+	 * is a lookupswitch from the characters leaving the state to the block
+	 * entering their target, which stores the target as a constant, or
+	 * returns at once for a dead or universal target
+	 */
+	private void emit() {
+		pc = 0;
+		numFrames = 0;
+		int[] symbolIndex = dfa.symbolIndex;
+		if (dfa.absorbing[dfa.startState]) {
+			op(dfa.accept[dfa.startState] ? ICONST_1 : ICONST_0);
+			op(IRETURN);
+			return;
+		}
+
+		op(ICONST_0);
+		op(ISTORE_2);
+		op(ALOAD_1);
+		op2(INVOKEVIRTUAL, STRING_LENGTH);
+		op(ISTORE_3);
+		op(ICONST_0);
+		op1(ISTORE, 5);
+		op2(SIPUSH, dfa.startState);
+		op1(ISTORE, 4);
+
+		loopAt = frame();
+		op(ILOAD_2);
+		op(ILOAD_3);
+		op2(IF_ICMPGE, endAt - pc);
+		op(ALOAD_1);
+		op(ILOAD_2);
+		op2(INVOKEVIRTUAL, STRING_CHAR_AT);
+		op(IINC);
+		u1(2);
+		u1(1);
+		op1(ISTORE, 5);
+		op1(ILOAD, 4);
+		int at = pc;
+		op(TABLESWITCH);
+		align();
+		u4(loopAt - at);
+		u4(1);
+		u4(dfa.numStates);
+		for (int q = 1; q <= dfa.numStates; q++) {
+			u4((dfa.absorbing[q] ? loopAt : switchAt[q]) - at);
+		}
+
+		// a character outside of the alphabet, or looping on the state, goes
+		// back to the loop
+		for (int q = 1; q <= dfa.numStates; q++) {
+			if (dfa.absorbing[q]) {
+				continue;
+			}
+			switchAt[q] = frame();
+			op1(ILOAD, 5);
+			at = pc;
+			op(LOOKUPSWITCH);
+			align();
+			u4(loopAt - at);
+			int pairsAt = pc;
+			u4(0);
+			int pairs = 0;
+			for (int c = 0; c < symbolIndex.length; c++) {
+				if (symbolIndex[c] < 0) {
+					continue;
+				}
+				int target = dfa.table[q * k + symbolIndex[c]];
+				if (target != q) {
+					u4(c);
+					u4(enterAt[target] - at);
+					pairs++;
+				}
+			}
+			if (code != null) {
+				int end = pc;
+				pc = pairsAt;
+				u4(pairs);
+				pc = end;
+			}
+			if (pc > MAX_CODE) {
+				return;
+			}
+		}
+
+		for (int q = 1; q <= dfa.numStates; q++) {
+			enterAt[q] = frame();
+			if (dfa.absorbing[q]) {
+				op(dfa.accept[q] ? ICONST_1 : ICONST_0);
+				op(IRETURN);
+			} else {
+				op2(SIPUSH, q);
+				op1(ISTORE, 4);
+				op2(GOTO, loopAt - pc);
+			}
+		}
+
+		// the end of the input, answered by the state reached
+		endAt = frame();
+		op1(ILOAD, 4);
+		at = pc;
+		op(LOOKUPSWITCH);
+		align();
+		u4(rejectAt - at);
+		int accepting = 0;
+		for (int q = 1; q <= dfa.numStates; q++) {
+			if (dfa.accept[q] && !dfa.absorbing[q]) {
+				accepting++;
+			}
+		}
+		u4(accepting);
+		for (int q = 1; q <= dfa.numStates; q++) {
+			if (dfa.accept[q] && !dfa.absorbing[q]) {
+				u4(q);
+				u4(acceptAt - at);
+			}
+		}
+		rejectAt = frame();
+		op(ICONST_0);
+		op(IRETURN);
+		acceptAt = frame();
+		op(ICONST_1);
+		op(IRETURN);
+	}
+
+	/*
+	 * Purpose: marks the current offset as jumped to
+	 * 
+	 * @return the offset
+	 */
+	private int frame() {
+		frames[numFrames++] = pc;
+		return pc;
+	}
+
+	private void op(int opcode) {
+		u1(opcode);
+	}
+
+	private void op1(int opcode, int operand) {
+		u1(opcode);
+		u1(operand);
+	}
+
+	private void op2(int opcode, int operand) {
+		u1(opcode);
+		u1(operand >> 8);
+		u1(operand);
+	}
+
+	/*
+	 * Purpose: pads the code to a multiple of 4 bytes, as the tables of the
+	 * switches require
+	 */
+	private void align() {
+		while (pc % 4 != 0) {
+			u1(0);
+		}
+	}
+
+	private void u1(int value) {
+		if (code != null) {
+			code[pc] = (byte) value;
+		}
+		pc++;
+	}
+
+	private void u4(int value) {
+		u1(value >> 24);
+		u1(value >> 16);
+		u1(value >> 8);
+		u1(value);
+	}
+
+	/*
+	 * Purpose: writes the classfile of a final class implementing Matcher,
+	 * with a no argument constructor and the given matches(String)
+	 * 
+	 * @param name the name of the class, in the default package
+	 * 
+	 * @param code the bytecode of matches(String)
+	 * 
+	 * @param frames the offsets needing a stack map frame, in increasing order
+	 * 
+	 * @return the classfile
+	 */
+	private static byte[] classFile(String name, byte[] code, int[] frames)
+			throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0xCAFEBABE);
+		out.writeShort(0);
+		out.writeShort(52);
+
+		out.writeShort(25);
+		utf8(out, name); // 1
+		classRef(out, 1); // 2
+		utf8(out, "java/lang/Object"); // 3
+		classRef(out, 3); // 4
+		utf8(out, "Matcher"); // 5
+		classRef(out, 5); // 6
+		utf8(out, "<init>"); // 7
+		utf8(out, "()V"); // 8
+		nameAndType(out, 7, 8); // 9
+		methodRef(out, 4, 9); // 10
+		utf8(out, "java/lang/String"); // 11
+		classRef(out, 11); // 12
+		utf8(out, "length"); // 13
+		utf8(out, "()I"); // 14
+		nameAndType(out, 13, 14); // 15
+		methodRef(out, 12, 15); // 16
+		utf8(out, "charAt"); // 17
+		utf8(out, "(I)C"); // 18
+		nameAndType(out, 17, 18); // 19
+		methodRef(out, 12, 19); // 20
+		utf8(out, "matches"); // 21
+		utf8(out, "(Ljava/lang/String;)Z"); // 22
+		utf8(out, "Code"); // 23
+		utf8(out, "StackMapTable"); // 24
+
+		// ACC_FINAL | ACC_SUPER
+		out.writeShort(0x0030);
+		out.writeShort(THIS_CLASS);
+		out.writeShort(OBJECT_CLASS);
+		out.writeShort(1);
+		out.writeShort(MATCHER_CLASS);
+		out.writeShort(0);
+		out.writeShort(2);
+
+		// public <init>() { super(); }
+		byte[] init = { ALOAD_0, (byte) INVOKESPECIAL, 0, OBJECT_INIT,
+				(byte) RETURN };
+		out.writeShort(0x0001);
+		out.writeShort(INIT_NAME);
+		out.writeShort(VOID_DESCRIPTOR);
+		out.writeShort(1);
+		out.writeShort(CODE);
+		out.writeInt(12 + init.length);
+		out.writeShort(1);
+		out.writeShort(1);
+		out.writeInt(init.length);
+		out.write(init);
+		out.writeShort(0);
+		out.writeShort(0);
+
+		// public boolean matches(String input), whose frames all hold the
+		// four int locals and an empty stack: the first is written in full,
+		// and the others are the same
+		ByteArrayOutputStream mapBytes = new ByteArrayOutputStream();
+		DataOutputStream map = new DataOutputStream(mapBytes);
+		map.writeShort(frames.length);
+		for (int i = 0; i < frames.length; i++) {
+			if (i == 0) {
+				map.writeByte(255);
+				map.writeShort(frames[0]);
+				map.writeShort(6);
+				map.writeByte(7);
+				map.writeShort(THIS_CLASS);
+				map.writeByte(7);
+				map.writeShort(STRING_CLASS);
+				for (int local = 0; local < 4; local++) {
+					map.writeByte(1);
+				}
+				map.writeShort(0);
+			} else if (frames[i] - frames[i - 1] - 1 < 64) {
+				map.writeByte(frames[i] - frames[i - 1] - 1);
+			} else {
+				map.writeByte(251);
+				map.writeShort(frames[i] - frames[i - 1] - 1);
+			}
+		}
+		byte[] stackMap = mapBytes.toByteArray();
+		out.writeShort(0x0001);
+		out.writeShort(MATCHES_NAME);
+		out.writeShort(MATCHES_DESCRIPTOR);
+		out.writeShort(1);
+		out.writeShort(CODE);
+		out.writeInt(12 + code.length + 6 + stackMap.length);
+		out.writeShort(2);
+		out.writeShort(6);
+		out.writeInt(code.length);
+		out.write(code);
+		out.writeShort(0);
+		out.writeShort(1);
+		out.writeShort(STACK_MAP_TABLE);
+		out.writeInt(stackMap.length);
+		out.write(stackMap);
+
+		out.writeShort(0);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static void utf8(DataOutputStream out, String s)
+			throws IOException {
+		out.writeByte(1);
+		out.writeUTF(s);
+	}
+
+	private static void classRef(DataOutputStream out, int name)
+			throws IOException {
+		out.writeByte(7);
+		out.writeShort(name);
+	}
+
+	private static void nameAndType(DataOutputStream out, int name,
+			int descriptor) throws IOException {
+		out.writeByte(12);
+		out.writeShort(name);
+		out.writeShort(descriptor);
+	}
+
+	private static void methodRef(DataOutputStream out, int owner,
+			int nameAndType) throws IOException {
+		out.writeByte(10);
+		out.writeShort(owner);
+		out.writeShort(nameAndType);
+	}
+}
@@ -0,0 +1,241 @@
+/*
+ * Reads and writes compiled DFAs in a versioned binary format, and names the
+ * files of the on-disk DFA cache. A file is formatted in the following fashion
+ * (big-endian):
+ * 	int magic ("REDF"), int version
+ * 	int numStates, int startState, int alphabet size k, int number of symbol
+ * 	classes m, int expression length L
+ * 	int[k] symbol class of each alphabet character
+ * 	char[k] alphabet, char[L] expression, padded to a multiple of 4 bytes
+ * 	byte[numStates + 1] accept flags, padded to a multiple of 4 bytes
+ * 	int[(numStates + 1) * m] transition table
+ * The alphabet and expression are stored so that a hash collision in the
+ * cache is detected on load.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+class DFAFile {
+	public static final int MAGIC = 0x52454446;
+	public static final int VERSION = 2;
+
+	/*
+	 * Purpose: names the cache file of a compiled expression, by hashing
+	 * everything that determines the compiled DFA
+	 * 
+	 * @param directory the cache directory
+	 * 
+	 * @param alphabet the alphabet of the Regular Expression
+	 * 
+	 * @param expression the Regular Expression, as read from the input file
+	 * 
+	 * @param minimize whether the DFA is minimized
+	 * 
+	 * @return the cache file
+	 */
+	public static File cacheFile(String directory, String alphabet,
+			String expression, boolean minimize) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] hash = digest.digest((VERSION + "\n" + minimize + "\n"
+					+ alphabet + "\n" + expression).getBytes("UTF-8"));
+			StringBuilder name = new StringBuilder();
+			for (byte b : hash) {
+				name.append(String.format("%02x", b & 0xFF));
+			}
+			return new File(directory, name.append(".dfa").toString());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/*
+	 * Purpose: writes a compiled DFA to a file - the file is written under a
+	 * temporary name and then renamed, so concurrent runs never load a
+	 * partially written file
+	 * 
+	 * @param dfa the DFA to be written
+	 * 
+	 * @param alphabet the alphabet of the Regular Expression
+	 * 
+	 * @param expression the Regular Expression, as read from the input file
+	 * 
+	 * @param file the file to be written
+	 */
+	public static void write(DFA dfa, String alphabet, String expression,
+			File file) throws IOException {
+		if (dfa.table == null) {
+			dfa.buildTable();
+		}
+		int k = alphabet.length();
+		int header = pad(28 + 6 * k + 2 * expression.length());
+		int flags = pad(dfa.numStates + 1);
+		ByteBuffer buffer = ByteBuffer.allocate(header + flags + 4
+				* dfa.table.length);
+
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(dfa.numStates)
+				.putInt(dfa.startState).putInt(k).putInt(dfa.alphabet.size())
+				.putInt(expression.length());
+		for (int i = 0; i < k; i++) {
+			buffer.putInt(dfa.symbolIndex[alphabet.charAt(i)]);
+		}
+		for (int i = 0; i < k; i++) {
+			buffer.putChar(alphabet.charAt(i));
+		}
+		for (int i = 0; i < expression.length(); i++) {
+			buffer.putChar(expression.charAt(i));
+		}
+		buffer.position(header);
+		for (int q = 0; q <= dfa.numStates; q++) {
+			buffer.put((byte) (dfa.accept[q] ? 1 : 0));
+		}
+		buffer.position(header + flags);
+		buffer.asIntBuffer().put(dfa.table);
+
+		File directory = file.getAbsoluteFile().getParentFile();
+		directory.mkdirs();
+		File temp = File.createTempFile(file.getName(), ".tmp", directory);
+		RandomAccessFile out = new RandomAccessFile(temp, "rw");
+		try {
+			buffer.rewind();
+			FileChannel channel = out.getChannel();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} finally {
+			out.close();
+		}
+		Files.move(temp.toPath(), file.toPath(),
+				StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/*
+	 * Purpose: loads a compiled DFA by memory mapping its file - the table is
+	 * copied out in bulk, so no object is built per state
+	 * 
+	 * @param file the file to be loaded
+	 * 
+	 * @param alphabet the expected alphabet
+	 * 
+	 * @param expression the expected Regular Expression
+	 * 
+	 * @return the loaded DFA, or null if the file is missing, of another
+	 * version, corrupt, or holds another expression
+	 */
+	public static DFA load(File file, String alphabet, String expression)
+			throws IOException {
+		if (!file.isFile()) {
+			return null;
+		}
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+			if (size < 28 || size > Integer.MAX_VALUE) {
+				return null;
+			}
+			MappedByteBuffer buffer = channel.map(
+					FileChannel.MapMode.READ_ONLY, 0, size);
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				return null;
+			}
+			int numStates = buffer.getInt();
+			int startState = buffer.getInt();
+			int k = buffer.getInt();
+			int m = buffer.getInt();
+			int length = buffer.getInt();
+			if (k != alphabet.length() || length != expression.length()
+					|| m < 1 || m > k || numStates < 1 || startState < 1
+					|| startState > numStates) {
+				return null;
+			}
+			int header = pad(28 + 6 * k + 2 * length);
+			int flags = pad(numStates + 1);
+			if (size != header + flags + 4L * (numStates + 1) * m) {
+				return null;
+			}
+
+			// every class is labelled by its first alphabet character
+			int maxChar = -1;
+			for (int i = 0; i < k; i++) {
+				maxChar = Math.max(maxChar, alphabet.charAt(i));
+			}
+			int[] symbolIndex = new int[maxChar + 1];
+			Arrays.fill(symbolIndex, -1);
+			Character[] labels = new Character[m];
+			for (int i = 0; i < k; i++) {
+				int symbol = buffer.getInt();
+				if (symbol < 0 || symbol >= m) {
+					return null;
+				}
+				symbolIndex[alphabet.charAt(i)] = symbol;
+				if (labels[symbol] == null) {
+					labels[symbol] = Character.valueOf(alphabet.charAt(i));
+				}
+			}
+			for (int i = 0; i < k; i++) {
+				if (buffer.getChar() != alphabet.charAt(i)) {
+					return null;
+				}
+			}
+			for (int i = 0; i < length; i++) {
+				if (buffer.getChar() != expression.charAt(i)) {
+					return null;
+				}
+			}
+
+			boolean[] accept = new boolean[numStates + 1];
+			buffer.position(header);
+			for (int q = 0; q <= numStates; q++) {
+				accept[q] = buffer.get() != 0;
+			}
+			int[] table = new int[(numStates + 1) * m];
+			buffer.position(header + flags);
+			IntBuffer ints = buffer.asIntBuffer();
+			ints.get(table);
+			for (int i = m; i < table.length; i++) {
+				if (table[i] < 1 || table[i] > numStates) {
+					return null;
+				}
+			}
+
+			ArrayList<Character> characters = new ArrayList<Character>(m);
+			for (int i = 0; i < m; i++) {
+				if (labels[i] == null) {
+					return null;
+				}
+				characters.add(labels[i]);
+			}
+			return new DFA(numStates, characters, symbolIndex, table, accept,
+					startState);
+		} finally {
+			in.close();
+		}
+	}
+
+	/*
+	 * Purpose: rounds a size in bytes up to a multiple of 4
+	 * 
+	 * @param size the size in bytes
+	 * 
+	 * @return the padded size
+	 */
+	private static int pad(int size) {
+		return (size + 3) & ~3;
+	}
+}
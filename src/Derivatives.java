@@ -0,0 +1,376 @@
+/*
+ * Builds a DFA straight from the syntax tree with Brzozowski derivatives: a
+ * DFA state is an expression, and its transition on a symbol is the
+ * derivative of that expression with respect to the symbol, so no NFA is
+ * built. Expressions are hash-consed into an arena and kept in a normal form
+ * (unions are flattened, sorted and free of duplicates and of the empty
+ * language; concatenations are nested to the right, and the empty string and
+ * the empty language are simplified away), so similar derivatives are the
+ * same expression and the construction ends, usually with a near-minimal DFA.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+class Derivatives {
+
+	// kinds of expressions
+	public static final int EMPTY = 0;
+	public static final int EPSILON = 1;
+	public static final int SYMBOL = 2;
+	public static final int CONCAT = 3;
+	public static final int UNION = 4;
+	public static final int STAR = 5;
+
+	// expression i is kind[i] applied to first[i] and second[i] (the symbol
+	// index of a SYMBOL); a UNION holds an element in first[i] and the union
+	// of the larger elements in second[i]
+	public int size;
+	public int[] kind;
+	public int[] first;
+	public int[] second;
+	public boolean[] nullable;
+
+	private int k;
+	private int empty;
+	private int epsilon;
+
+	// open addressing table of the expressions by key, probed linearly: slot
+	// i holds an expression plus one in ids[i] (0 if free), and its key in
+	// keys[i]; the table is at most half full
+	private long[] keys;
+	private int[] ids;
+
+	// derivative[i * k + a] is the derivative of expression i on symbol a,
+	// plus one (0 until computed)
+	private int[] derivative;
+
+	public Derivatives(int k) {
+		this.k = k;
+		size = 0;
+		kind = new int[64];
+		first = new int[64];
+		second = new int[64];
+		nullable = new boolean[64];
+		derivative = new int[64 * k];
+		keys = new long[128];
+		ids = new int[128];
+		empty = make(EMPTY, 0, 0);
+		epsilon = make(EPSILON, 0, 0);
+	}
+
+	/*
+	 * Purpose: builds the DFA of a Regular Expression from its syntax tree,
+	 * numbering the states from 1 in breadth first order
+	 * 
+	 * @param tree the syntax tree of the expression
+	 * 
+	 * @param re the Regular Expression, with its symbol classes built
+	 * 
+	 * @return the DFA, over the symbol classes of re
+	 */
+	public static DFA build(SyntaxTree tree, RegularExpression re) {
+		int k = re.classes.size();
+		Derivatives d = new Derivatives(k);
+		int start = d.fromTree(tree, re);
+
+		// state[i] is the DFA state of expression i, or 0
+		int[] state = new int[d.size];
+		ArrayList<Integer> queue = new ArrayList<Integer>();
+		int[] table = new int[2 * k];
+		queue.add(Integer.valueOf(start));
+		state[start] = 1;
+		for (int q = 1; q <= queue.size(); q++) {
+			int expression = queue.get(q - 1).intValue();
+			if ((q + 1) * k > table.length) {
+				table = Arrays.copyOf(table, 2 * (q + 1) * k);
+			}
+			for (int a = 0; a < k; a++) {
+				int target = d.derive(expression, a);
+				if (target >= state.length) {
+					state = Arrays.copyOf(state, Math.max(2 * state.length,
+							target + 1));
+				}
+				if (state[target] == 0) {
+					queue.add(Integer.valueOf(target));
+					state[target] = queue.size();
+				}
+				table[q * k + a] = state[target];
+			}
+		}
+
+		int numStates = queue.size();
+		boolean[] accept = new boolean[numStates + 1];
+		for (int q = 1; q <= numStates; q++) {
+			accept[q] = d.nullable[queue.get(q - 1).intValue()];
+		}
+		return new DFA(numStates, new Toolbox().cloneChar(re.classes),
+				re.symbolIndex, Arrays.copyOf(table, (numStates + 1) * k),
+				accept, 1);
+	}
+
+	/*
+	 * Purpose: converts a syntax tree into an expression of the arena - a
+	 * chain of concatenations or of unions is converted as a whole, so that
+	 * long chains are not normalized over and over
+	 * 
+	 * @return the expression of the root
+	 */
+	public int fromTree(SyntaxTree tree, RegularExpression re) {
+		int[] expression = new int[tree.size];
+		int[] parent = new int[tree.size];
+		Arrays.fill(parent, -1);
+		for (int node = 0; node < tree.size; node++) {
+			if (tree.left[node] >= 0) {
+				parent[tree.left[node]] = node;
+			}
+			if (tree.right[node] >= 0) {
+				parent[tree.right[node]] = node;
+			}
+		}
+
+		int[] stack = new int[tree.size];
+		int[] operands = new int[tree.size];
+		for (int node = 0; node < tree.size; node++) {
+			char c = tree.data[node];
+			if (tree.isLeaf(node)) {
+				// a character outside of the alphabet matches nothing
+				if (c == 'e') {
+					expression[node] = epsilon;
+				} else if (re.inAlphabet(c)) {
+					expression[node] = make(SYMBOL, re.symbolIndex[c], 0);
+				} else {
+					expression[node] = empty;
+				}
+				continue;
+			} else if (c == '*') {
+				expression[node] = star(expression[tree.left[node]]);
+				continue;
+			} else if (parent[node] >= 0 && tree.data[parent[node]] == c) {
+				// converted with the top of its chain
+				continue;
+			}
+
+			// the operands of the chain, in order (the right child of an '@'
+			// holds its first operand)
+			int count = 0, top = 0;
+			stack[top++] = node;
+			while (top > 0) {
+				int n = stack[--top];
+				if (tree.data[n] != c || tree.isLeaf(n)) {
+					operands[count++] = expression[n];
+				} else if (c == '@') {
+					stack[top++] = tree.left[n];
+					stack[top++] = tree.right[n];
+				} else {
+					stack[top++] = tree.right[n];
+					stack[top++] = tree.left[n];
+				}
+			}
+			if (c == '@') {
+				int result = epsilon;
+				for (int i = count - 1; i >= 0; i--) {
+					result = concat(operands[i], result);
+				}
+				expression[node] = result;
+			} else {
+				expression[node] = union(operands, count);
+			}
+		}
+		return expression[tree.root];
+	}
+
+	/*
+	 * Purpose: computes the derivative of an expression on a symbol, once
+	 * 
+	 * @param r the expression
+	 * 
+	 * @param a the symbol index
+	 * 
+	 * @return the expression matching every w such that r matches aw
+	 */
+	public int derive(int r, int a) {
+		if (derivative[r * k + a] != 0) {
+			return derivative[r * k + a] - 1;
+		}
+		int result;
+		switch (kind[r]) {
+		case SYMBOL:
+			result = first[r] == a ? epsilon : empty;
+			break;
+		case CONCAT:
+			result = concat(derive(first[r], a), second[r]);
+			if (nullable[first[r]]) {
+				result = union(result, derive(second[r], a));
+			}
+			break;
+		case UNION:
+			result = union(derive(first[r], a), derive(second[r], a));
+			break;
+		case STAR:
+			result = concat(derive(first[r], a), r);
+			break;
+		default:
+			result = empty;
+		}
+		derivative[r * k + a] = result + 1;
+		return result;
+	}
+
+	/*
+	 * Purpose: builds the concatenation of two expressions, in normal form
+	 */
+	public int concat(int r, int s) {
+		if (kind[r] == EMPTY || kind[s] == EMPTY) {
+			return empty;
+		} else if (kind[r] == EPSILON) {
+			return s;
+		} else if (kind[s] == EPSILON) {
+			return r;
+		} else if (kind[r] == CONCAT) {
+			return concat(first[r], concat(second[r], s));
+		}
+		return make(CONCAT, r, s);
+	}
+
+	/*
+	 * Purpose: builds the union of two expressions, in normal form
+	 */
+	public int union(int r, int s) {
+		return r == s ? r : union(new int[] { r, s }, 2);
+	}
+
+	/*
+	 * Purpose: builds the union of several expressions, in normal form
+	 * 
+	 * @param elements the expressions (reordered by the call)
+	 * 
+	 * @param count the number of expressions
+	 * 
+	 * @return the union
+	 */
+	public int union(int[] elements, int count) {
+		// flatten the unions among the elements
+		int total = 0;
+		for (int i = 0; i < count; i++) {
+			for (int e = elements[i]; kind[e] == UNION; e = second[e]) {
+				total++;
+			}
+			total++;
+		}
+		int[] all = elements;
+		if (total > count) {
+			all = new int[total];
+			int n = 0;
+			for (int i = 0; i < count; i++) {
+				int e = elements[i];
+				for (; kind[e] == UNION; e = second[e]) {
+					all[n++] = first[e];
+				}
+				all[n++] = e;
+			}
+		}
+		Arrays.sort(all, 0, total);
+
+		// fold from the largest element, skipping duplicates and the empty
+		// language
+		int result = -1;
+		for (int i = total - 1; i >= 0; i--) {
+			int e = all[i];
+			if (kind[e] == EMPTY || (i + 1 < total && all[i + 1] == e)) {
+				continue;
+			}
+			result = result < 0 ? e : make(UNION, e, result);
+		}
+		return result < 0 ? empty : result;
+	}
+
+	/*
+	 * Purpose: builds the star of an expression, in normal form
+	 */
+	public int star(int r) {
+		if (kind[r] == EMPTY || kind[r] == EPSILON) {
+			return epsilon;
+		} else if (kind[r] == STAR) {
+			return r;
+		}
+		return make(STAR, r, 0);
+	}
+
+	/*
+	 * Purpose: finds or adds an expression of the arena
+	 * 
+	 * @return the expression
+	 */
+	private int make(int type, int a, int b) {
+		long key = ((long) type << 60) | ((long) a << 30) | b;
+		int slot = slot(key);
+		if (ids[slot] != 0) {
+			return ids[slot] - 1;
+		}
+		if (size == kind.length) {
+			kind = Arrays.copyOf(kind, 2 * size);
+			first = Arrays.copyOf(first, 2 * size);
+			second = Arrays.copyOf(second, 2 * size);
+			nullable = Arrays.copyOf(nullable, 2 * size);
+			derivative = Arrays.copyOf(derivative, 2 * size * k);
+		}
+		kind[size] = type;
+		first[size] = a;
+		second[size] = b;
+		switch (type) {
+		case EPSILON:
+		case STAR:
+			nullable[size] = true;
+			break;
+		case CONCAT:
+			nullable[size] = nullable[a] && nullable[b];
+			break;
+		case UNION:
+			nullable[size] = nullable[a] || nullable[b];
+			break;
+		default:
+			nullable[size] = false;
+		}
+		keys[slot] = key;
+		ids[slot] = size + 1;
+		if (2 * (size + 1) > ids.length) {
+			rehash();
+		}
+		return size++;
+	}
+
+	/*
+	 * Purpose: finds the slot of a key in the table of expressions
+	 * 
+	 * @param key the key of an expression
+	 * 
+	 * @return the slot holding the key, or the free slot where it belongs
+	 */
+	private int slot(long key) {
+		int mask = ids.length - 1;
+		long h = key * 0x9E3779B97F4A7C15L;
+		int slot = (int) (h ^ (h >>> 32)) & mask;
+		while (ids[slot] != 0 && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/*
+	 * Purpose: doubles the table of expressions
+	 */
+	private void rehash() {
+		long[] oldKeys = keys;
+		int[] oldIds = ids;
+		keys = new long[2 * oldKeys.length];
+		ids = new int[2 * oldIds.length];
+		for (int i = 0; i < oldIds.length; i++) {
+			if (oldIds[i] != 0) {
+				int slot = slot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				ids[slot] = oldIds[i];
+			}
+		}
+	}
+}
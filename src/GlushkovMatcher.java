@@ -0,0 +1,162 @@
+/*
+ * Bit-parallel matcher for small expressions, built on the Glushkov position
+ * automaton: every alphabet character of the expression is a position, and
+ * the automaton, which has no epsilon transitions, is computed straight from
+ * the syntax tree. A set of active positions fits in one long, so a step
+ * takes the union of the follow sets of the active positions (looked up a
+ * byte of positions at a time) and masks it with the positions of the input
+ * symbol - no DFA is built, and no state explosion can occur.
+ * 
+ * Immutable once built, so it may be shared between threads.
+ */
+
+class GlushkovMatcher implements Matcher {
+
+	// positions are bits 1 to MAX_POSITIONS of a long; bit 0 is the initial
+	// state
+	public static final int MAX_POSITIONS = 63;
+
+	public int numPositions;
+
+	private int[] symbolIndex;
+	private long[] symbolMask;
+	private long accept;
+	private int chunks;
+	private long[] follow;
+
+	private GlushkovMatcher(int[] symbolIndex, int numPositions,
+			long[] symbolMask, long[] followOf, long accept) {
+		this.symbolIndex = symbolIndex;
+		this.numPositions = numPositions;
+		this.symbolMask = symbolMask;
+		this.accept = accept;
+
+		// follow[chunk * 256 + b] is the union of the follow sets of the
+		// positions 8 * chunk + i for every bit i of b
+		chunks = (numPositions + 8) / 8;
+		follow = new long[chunks * 256];
+		for (int chunk = 0; chunk < chunks; chunk++) {
+			for (int b = 1; b < 256; b++) {
+				int low = Integer.numberOfTrailingZeros(b);
+				int p = 8 * chunk + low;
+				follow[chunk * 256 + b] = follow[chunk * 256 + (b & (b - 1))]
+						| (p <= numPositions ? followOf[p] : 0);
+			}
+		}
+	}
+
+	/*
+	 * Purpose: builds the Glushkov automaton of an expression from its syntax
+	 * tree, computing for each node whether it matches the empty string and
+	 * the positions that may start and end its matches
+	 * 
+	 * @param tree the syntax tree of the expression
+	 * 
+	 * @param re the Regular Expression, with its symbol classes built
+	 * 
+	 * @return the matcher, or null if the expression has more than
+	 * MAX_POSITIONS positions
+	 */
+	public static GlushkovMatcher build(SyntaxTree tree, RegularExpression re) {
+		int k = re.classes.size();
+		long[] symbolMask = new long[k];
+		long[] followOf = new long[MAX_POSITIONS + 1];
+		boolean[] nullable = new boolean[tree.size];
+		long[] first = new long[tree.size];
+		long[] last = new long[tree.size];
+		int numPositions = 0;
+
+		for (int node = 0; node < tree.size; node++) {
+			char c = tree.data[node];
+			int left = tree.left[node], right = tree.right[node];
+			if (tree.isLeaf(node)) {
+				// a character outside of the alphabet matches nothing
+				if (c == 'e') {
+					nullable[node] = true;
+				} else if (re.inAlphabet(c)) {
+					if (numPositions == MAX_POSITIONS) {
+						return null;
+					}
+					long position = 1L << ++numPositions;
+					symbolMask[re.symbolIndex[c]] |= position;
+					first[node] = last[node] = position;
+				}
+			} else if (c == '*') {
+				nullable[node] = true;
+				first[node] = first[left];
+				last[node] = last[left];
+				link(followOf, last[left], first[left]);
+			} else if (c == '@') {
+				// the right child holds the first operand
+				link(followOf, last[right], first[left]);
+				nullable[node] = nullable[right] && nullable[left];
+				first[node] = first[right]
+						| (nullable[right] ? first[left] : 0);
+				last[node] = last[left] | (nullable[left] ? last[right] : 0);
+			} else {
+				nullable[node] = nullable[left] || nullable[right];
+				first[node] = first[left] | first[right];
+				last[node] = last[left] | last[right];
+			}
+		}
+
+		int root = tree.root;
+		followOf[0] = first[root];
+		long accept = last[root] | (nullable[root] ? 1 : 0);
+		return new GlushkovMatcher(re.symbolIndex, numPositions, symbolMask,
+				followOf, accept);
+	}
+
+	/*
+	 * Purpose: adds the positions of to to the follow set of every position
+	 * of from
+	 */
+	private static void link(long[] followOf, long from, long to) {
+		while (from != 0) {
+			followOf[Long.numberOfTrailingZeros(from)] |= to;
+			from &= from - 1;
+		}
+	}
+
+	/*
+	 * Purpose: counts the transitions of the position automaton
+	 * 
+	 * @return the number of (position, following position) pairs, counting
+	 * the initial state as position 0
+	 */
+	public long numTransitions() {
+		long count = 0;
+		for (int p = 0; p <= numPositions; p++) {
+			count += Long.bitCount(follow[(p / 8) * 256 + (1 << (p % 8))]);
+		}
+		return count;
+	}
+
+	/*
+	 * Purpose: tests the input on the position automaton - characters
+	 * outside of the alphabet are skipped
+	 * 
+	 * @param input the input to be tested
+	 * 
+	 * @return a boolean which represents if the string input is in the
+	 * language
+	 */
+	public boolean matches(String input) {
+		long active = 1;
+		for (int i = 0, size = input.length(); i < size; i++) {
+			char c = input.charAt(i);
+			if (c >= symbolIndex.length || symbolIndex[c] < 0) {
+				continue;
+			}
+			long next = 0;
+			for (int chunk = 0, at = 0; chunk < chunks; chunk++, at += 256) {
+				next |= follow[at + (int) (active >>> (8 * chunk) & 0xFF)];
+			}
+			active = next & symbolMask[symbolIndex[c]];
+			if (active == 0) {
+				return false;
+			}
+		}
+		return (active & accept) != 0;
+	}
+}
@@ -0,0 +1,11 @@
+/*
+ * Exception thrown when the text representation of a Regular Expression is not
+ * a valid Regular Expression
+ */
+class InvalidExpressionException extends Exception {
+	private static final long serialVersionUID = 1L;
+
+	public InvalidExpressionException(String message) {
+		super(message);
+	}
+}
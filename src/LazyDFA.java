@@ -0,0 +1,161 @@
+/*
+ * Object representation of a DFA that is built lazily from an NFA: a DFA state
+ * is only computed when an input reaches it, and computed states are kept in a
+ * cache of bounded size that is flushed when full. If the cache is flushed too
+ * often, the rest of the input is matched by stepping sets of NFA states.
+ * 
+ * Not safe for use by several threads at once, since matching fills the cache.
+ */
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+
+class LazyDFA implements Matcher {
+
+	// a flush counts as thrashing when fewer than this many characters per
+	// cached state were consumed since the previous flush
+	public static final int THRASH_FACTOR = 10;
+
+	public NFA nfa;
+	public int maxStates;
+	public int numStates;
+	public int flushes;
+	public int fallbacks;
+
+	private int k;
+	private int[] symbolIndex;
+	private BitSet accepting;
+	private HashMap<BitSet, Integer> ids;
+	private BitSet[] sets;
+	private int[] next;
+	private boolean[] accept;
+	private BitSet start;
+	private long sinceFlush;
+
+	public LazyDFA(NFA nfa, int maxStates) {
+		this.nfa = nfa;
+		this.maxStates = Math.max(2, maxStates);
+		if (nfa.closure == null) {
+			nfa.buildIndex();
+		}
+
+		k = nfa.alphabet.size();
+		symbolIndex = nfa.symbolIndex;
+		accepting = new BitSet();
+		for (Integer i : nfa.endStates) {
+			accepting.set(i.intValue());
+		}
+
+		ids = new HashMap<BitSet, Integer>();
+		sets = new BitSet[this.maxStates];
+		next = new int[this.maxStates * k];
+		accept = new boolean[this.maxStates];
+		start = new BitSet();
+		start.set(nfa.startState);
+		start = RegularExpressionParser.buildStartState(start, nfa);
+		flush();
+	}
+
+	/*
+	 * Purpose: tests the input on the lazily built DFA
+	 * 
+	 * @param input the input to be tested
+	 * 
+	 * @return a boolean which represents if the string input is in the
+	 * language
+	 */
+	public boolean matches(String input) {
+		int state = 0;
+		int size = input.length();
+
+		for (int index = 0; index < size; index++) {
+			char c = input.charAt(index);
+			if (c >= symbolIndex.length || symbolIndex[c] < 0) {
+				continue;
+			}
+			int symbol = symbolIndex[c];
+			int target = next[state * k + symbol];
+			if (target < 0) {
+				BitSet end = RegularExpressionParser.computeSubset(
+						sets[state], nfa, symbol);
+				Integer id = ids.get(end);
+				if (id != null) {
+					target = id.intValue();
+				} else if (numStates < maxStates) {
+					target = add(end);
+				} else if (sinceFlush < (long) THRASH_FACTOR * numStates) {
+					fallbacks++;
+					return simulate(end, input, index + 1);
+				} else {
+					// the old state numbers are gone, so the transition just
+					// taken is not recorded
+					flush();
+					state = add(end);
+					sinceFlush++;
+					continue;
+				}
+				next[state * k + symbol] = target;
+			}
+			state = target;
+			sinceFlush++;
+		}
+
+		return accept[state];
+	}
+
+	/*
+	 * Purpose: finishes a computation by stepping sets of NFA states, used when
+	 * the state cache is thrashing
+	 * 
+	 * @param current the set of NFA states reached so far
+	 * 
+	 * @param input the input being tested
+	 * 
+	 * @param index the index of the next character of input to consume
+	 * 
+	 * @return a boolean which represents if the string input is in the
+	 * language
+	 */
+	private boolean simulate(BitSet current, String input, int index) {
+		for (int size = input.length(); index < size; index++) {
+			char c = input.charAt(index);
+			if (c < symbolIndex.length && symbolIndex[c] >= 0) {
+				current = RegularExpressionParser.computeSubset(current, nfa,
+						symbolIndex[c]);
+			}
+		}
+		return current.intersects(accepting);
+	}
+
+	/*
+	 * Purpose: empties the state cache, keeping only the start state (which is
+	 * always state 0)
+	 */
+	private void flush() {
+		if (numStates > 0) {
+			flushes++;
+		}
+		ids.clear();
+		Arrays.fill(sets, null);
+		Arrays.fill(next, -1);
+		numStates = 0;
+		sinceFlush = 0;
+		add(start);
+	}
+
+	/*
+	 * Purpose: adds a set of NFA states to the cache as a new DFA state
+	 * 
+	 * @param set the set of NFA states
+	 * 
+	 * @return the number of the new DFA state
+	 */
+	private int add(BitSet set) {
+		int id = numStates++;
+		ids.put(set, Integer.valueOf(id));
+		sets[id] = set;
+		accept[id] = set.intersects(accepting);
+		return id;
+	}
+}
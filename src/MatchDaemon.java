@@ -0,0 +1,192 @@
+/*
+ * Long running server that answers match requests on a local socket, keeping
+ * compiled DFAs in an LRU cache keyed by alphabet and expression, so that
+ * repeated patterns are only compiled once.
+ * 
+ * Each request is formatted in the following fashion:
+ * 	Alphabet
+ * 	Regular expression
+ * 	Number of test cases N
+ * 	Test case 1
+ * 	.....
+ * 	Test case N
+ * and is answered with one result per test case (true or false), or with a
+ * single "Invalid Expression" line. A connection may send any number of
+ * requests. Requests and answers are encoded in UTF-8.
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+class MatchDaemon {
+	public int port;
+	public int maxEntries;
+	public long maxBytes;
+	public boolean minimize;
+	public long hits;
+	public long misses;
+
+	private LinkedHashMap<String, DFA> cache;
+	private long cacheBytes;
+
+	public MatchDaemon(int port, int maxEntries, long maxBytes,
+			boolean minimize) {
+		this.port = port;
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+		this.minimize = minimize;
+		// access order, so that the eldest entry is the least recently used
+		this.cache = new LinkedHashMap<String, DFA>(16, 0.75f, true);
+		this.cacheBytes = 0;
+	}
+
+	/*
+	 * Purpose: accepts connections on the loopback interface until the process
+	 * is stopped, handling each connection on its own thread
+	 */
+	public void run() throws IOException {
+		ServerSocket server = new ServerSocket(port, 50,
+				InetAddress.getLoopbackAddress());
+		ExecutorService handlers = Executors.newCachedThreadPool();
+		System.out.println("Listening on " + server.getLocalSocketAddress());
+
+		while (true) {
+			final Socket socket = server.accept();
+			handlers.execute(new Runnable() {
+				public void run() {
+					handle(socket);
+				}
+			});
+		}
+	}
+
+	/*
+	 * Purpose: answers every request sent on a connection
+	 * 
+	 * @param socket the connection
+	 */
+	public void handle(Socket socket) {
+		try {
+			BufferedReader in = new BufferedReader(new InputStreamReader(
+					socket.getInputStream(), StandardCharsets.UTF_8),
+					RegularExpressionParser.BUFFER_SIZE);
+			BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+					socket.getOutputStream(), StandardCharsets.UTF_8),
+					RegularExpressionParser.BUFFER_SIZE);
+			String alphabet = in.readLine();
+
+			while (alphabet != null) {
+				String expression = in.readLine();
+				String countLine = in.readLine();
+				if (expression == null || countLine == null) {
+					break;
+				}
+				int count = Integer.parseInt(countLine.trim());
+				DFA dfa = lookup(alphabet, expression);
+
+				// the test cases are read even if the expression is invalid,
+				// so that the next request starts at the right line
+				Metrics metrics = Metrics.global;
+				long start = System.nanoTime();
+				PhaseEvent event = metrics.beginPhase();
+				int matched = 0, accepted = 0;
+				for (int i = 0; i < count; i++) {
+					String input = in.readLine();
+					if (input == null) {
+						break;
+					}
+					if (dfa != null) {
+						long before = System.nanoTime();
+						boolean result = RegularExpressionParser.testInput(dfa,
+								input);
+						if (metrics.detailed) {
+							metrics.recordMatch(System.nanoTime() - before);
+						}
+						out.write(result ? "true\n" : "false\n");
+						if (result) {
+							accepted++;
+						}
+						matched++;
+					}
+				}
+				if (dfa == null) {
+					out.write("Invalid Expression\n");
+				}
+				metrics.endMatching(start, event, matched, accepted);
+				out.flush();
+				alphabet = in.readLine();
+			}
+		} catch (IOException e) {
+			System.err.println("Error in I/O while answering a request: "
+					+ e.getMessage());
+		} catch (NumberFormatException e) {
+			System.err.println("Malformed request: " + e.getMessage());
+		} finally {
+			try {
+				socket.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	/*
+	 * Purpose: finds the compiled DFA of an expression in the cache, compiling
+	 * it (and evicting the least recently used DFAs as needed) on a miss
+	 * 
+	 * @param alphabet the alphabet, as given in the request
+	 * 
+	 * @param expression the Regular Expression, as given in the request
+	 * 
+	 * @return the compiled DFA, or null if the expression is invalid
+	 */
+	public DFA lookup(String alphabet, String expression) {
+		String key = alphabet + "\n" + expression;
+		synchronized (this) {
+			DFA dfa = cache.get(key);
+			if (dfa != null) {
+				hits++;
+				return dfa;
+			}
+			misses++;
+		}
+
+		ArrayList<Character> characters = new ArrayList<Character>();
+		for (int i = 0; i < alphabet.length(); i++) {
+			characters.add(Character.valueOf(alphabet.charAt(i)));
+		}
+		DFA dfa;
+		try {
+			dfa = RegularExpressionParser.compileDFA(new RegularExpression(
+					characters, expression), minimize);
+		} catch (InvalidExpressionException e) {
+			return null;
+		}
+
+		synchronized (this) {
+			if (!cache.containsKey(key)) {
+				cache.put(key, dfa);
+				cacheBytes += dfa.memoryEstimate();
+			}
+			while (cache.size() > 1
+					&& (cache.size() > maxEntries || cacheBytes > maxBytes)) {
+				Map.Entry<String, DFA> eldest = cache.entrySet().iterator()
+						.next();
+				cacheBytes -= eldest.getValue().memoryEstimate();
+				cache.remove(eldest.getKey());
+			}
+		}
+		return dfa;
+	}
+}
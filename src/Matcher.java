@@ -0,0 +1,16 @@
+/*
+ * Interface for any object that can decide if a test string is in the
+ * language of a Regular Expression
+ */
+interface Matcher {
+
+	/*
+	 * Purpose: tests the input against the compiled Regular Expression
+	 * 
+	 * @param input the input to be tested
+	 * 
+	 * @return a boolean which represents if the string input is in the
+	 * language
+	 */
+	public boolean matches(String input);
+}
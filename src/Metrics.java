@@ -0,0 +1,288 @@
+/*
+ * Process wide metrics of the pipeline: wall time per phase, automaton sizes,
+ * epsilon closure computations, test case counts and a histogram of per test
+ * case matching latency. Phases are also recorded as JFR events (PhaseEvent),
+ * and the metrics can be registered as a JMX MBean and dumped as JSON.
+ * 
+ * Per test case timing costs a few clock reads per test case, so it is only
+ * done when detailed is set; otherwise matching and output are timed
+ * together as the matching phase.
+ */
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+class Metrics implements MetricsMBean {
+	public static final int PARSE = 0;
+	public static final int NFA_BUILD = 1;
+	public static final int DETERMINIZE = 2;
+	public static final int MINIMIZE = 3;
+	public static final int MATCH = 4;
+	public static final int OUTPUT = 5;
+	public static final String[] PHASES = { "parse", "nfaBuild",
+			"determinize", "minimize", "match", "output" };
+
+	public static final Metrics global = new Metrics();
+
+	public volatile boolean detailed;
+
+	// automaton sizes are best-effort values: each phase overwrites its own
+	// with the size it just built, so they are those of a single compilation
+	// only when one compilation runs at a time, as in the command line
+	// program. When several threads compile at once (Pattern.compile, the
+	// daemon, the benchmarks), they may mix sizes from different expressions;
+	// the phase times and test case counts are sums, and stay exact
+	public final AtomicLong nfaStates = new AtomicLong();
+	public final AtomicLong nfaTransitions = new AtomicLong();
+	public final AtomicLong dfaStates = new AtomicLong();
+	public final AtomicLong dfaTransitions = new AtomicLong();
+	public final AtomicLong minimalDfaStates = new AtomicLong();
+
+	public final LongAdder epsilonClosures = new LongAdder();
+	public final LongAdder testCases = new LongAdder();
+	public final LongAdder acceptedTestCases = new LongAdder();
+
+	private final AtomicLongArray phaseNanos = new AtomicLongArray(
+			PHASES.length);
+
+	// bucket i counts test cases matched in [2^(i-1), 2^i) nanoseconds
+	private final AtomicLongArray latency = new AtomicLongArray(64);
+
+	/*
+	 * Purpose: starts timing a phase
+	 * 
+	 * @return the JFR event of the phase, already begun, or null if the flight
+	 * recorder is not running or not available
+	 */
+	public PhaseEvent beginPhase() {
+		return PhaseEvent.start();
+	}
+
+	/*
+	 * Purpose: finishes timing a phase
+	 * 
+	 * @param phase the phase (PARSE, NFA_BUILD, ...)
+	 * 
+	 * @param start the System.nanoTime() at which the phase began
+	 * 
+	 * @param event the JFR event returned by beginPhase
+	 * 
+	 * @param items the number of states built, or test cases processed
+	 */
+	public void endPhase(int phase, long start, PhaseEvent event, long items) {
+		phaseNanos.addAndGet(phase, System.nanoTime() - start);
+		if (event == null) {
+			return;
+		}
+		event.finish(PHASES[phase], items);
+	}
+
+	/*
+	 * Purpose: records the matching time of a single test case, when detailed
+	 * 
+	 * @param nanos the time spent matching the test case
+	 */
+	public void recordMatch(long nanos) {
+		phaseNanos.addAndGet(MATCH, nanos);
+		latency.incrementAndGet(64 - Long.numberOfLeadingZeros(Math.max(nanos,
+				0)) & 63);
+	}
+
+	/*
+	 * Purpose: adds time to a phase without recording a JFR event, for phases
+	 * timed in many small parts (such as writing each result)
+	 * 
+	 * @param phase the phase (PARSE, NFA_BUILD, ...)
+	 * 
+	 * @param nanos the time spent in the phase
+	 */
+	public void addNanos(int phase, long nanos) {
+		phaseNanos.addAndGet(phase, nanos);
+	}
+
+	/*
+	 * Purpose: records the end of a run over a set of test cases - when
+	 * detailed, the matching time was already recorded per test case (summed
+	 * over worker threads), otherwise the whole run counts as matching
+	 * 
+	 * @param start the System.nanoTime() at which matching began
+	 * 
+	 * @param event the JFR event returned by beginPhase
+	 * 
+	 * @param count the number of test cases
+	 * 
+	 * @param accepted the number of accepted test cases
+	 */
+	public void endMatching(long start, PhaseEvent event, long count,
+			long accepted) {
+		testCases.add(count);
+		acceptedTestCases.add(accepted);
+		endPhase(MATCH, detailed ? System.nanoTime() : start, event, count);
+	}
+
+	/*
+	 * Purpose: registers these metrics as a JMX MBean
+	 */
+	public void register() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+					new ObjectName("RegularExpressionParser:type=Metrics"));
+		} catch (JMException e) {
+			System.err.println("Could not register metrics MBean: "
+					+ e.getMessage());
+		}
+	}
+
+	/*
+	 * Purpose: writes the JSON summary of these metrics to a file
+	 * 
+	 * @param filename the name of the summary file
+	 */
+	public void dump(String filename) {
+		try {
+			FileWriter fw = new FileWriter(filename, false);
+			fw.write(getSummary());
+			fw.write("\n");
+			fw.close();
+		} catch (IOException e) {
+			System.err.println("Could not write metrics to " + filename);
+		}
+	}
+
+	public long getParseNanos() {
+		return phaseNanos.get(PARSE);
+	}
+
+	public long getNfaBuildNanos() {
+		return phaseNanos.get(NFA_BUILD);
+	}
+
+	public long getDeterminizeNanos() {
+		return phaseNanos.get(DETERMINIZE);
+	}
+
+	public long getMinimizeNanos() {
+		return phaseNanos.get(MINIMIZE);
+	}
+
+	public long getMatchNanos() {
+		return phaseNanos.get(MATCH);
+	}
+
+	public long getOutputNanos() {
+		return phaseNanos.get(OUTPUT);
+	}
+
+	public long getNfaStates() {
+		return nfaStates.get();
+	}
+
+	public long getNfaTransitions() {
+		return nfaTransitions.get();
+	}
+
+	public long getDfaStates() {
+		return dfaStates.get();
+	}
+
+	public long getDfaTransitions() {
+		return dfaTransitions.get();
+	}
+
+	public long getMinimalDfaStates() {
+		return minimalDfaStates.get();
+	}
+
+	public long getEpsilonClosures() {
+		return epsilonClosures.sum();
+	}
+
+	public long getTestCases() {
+		return testCases.sum();
+	}
+
+	public long getAcceptedTestCases() {
+		return acceptedTestCases.sum();
+	}
+
+	public double getTestCasesPerSecond() {
+		long nanos = getMatchNanos();
+		return nanos == 0 ? 0 : getTestCases() * 1e9 / nanos;
+	}
+
+	public long[] getLatencyHistogram() {
+		long[] histogram = new long[latency.length()];
+		for (int i = 0; i < histogram.length; i++) {
+			histogram[i] = latency.get(i);
+		}
+		return histogram;
+	}
+
+	/*
+	 * Purpose: computes an upper bound of a latency percentile from the
+	 * histogram
+	 * 
+	 * @param histogram the latency histogram
+	 * 
+	 * @param fraction the percentile, between 0 and 1
+	 * 
+	 * @return the upper bound in nanoseconds of the bucket holding the
+	 * percentile, or 0 if no test case was timed
+	 */
+	private static long percentile(long[] histogram, double fraction) {
+		long total = 0;
+		for (long count : histogram) {
+			total += count;
+		}
+		long seen = 0;
+		for (int i = 0; i < histogram.length; i++) {
+			seen += histogram[i];
+			if (total > 0 && seen >= fraction * total) {
+				return 1L << i;
+			}
+		}
+		return 0;
+	}
+
+	public String getSummary() {
+		StringBuilder sb = new StringBuilder("{\"phaseNanos\": {");
+		for (int i = 0; i < PHASES.length; i++) {
+			sb.append(i == 0 ? "" : ", ").append('"').append(PHASES[i])
+					.append("\": ").append(phaseNanos.get(i));
+		}
+		sb.append("}, \"nfa\": {\"states\": ").append(getNfaStates())
+				.append(", \"transitions\": ").append(getNfaTransitions());
+		sb.append("}, \"dfa\": {\"states\": ").append(getDfaStates())
+				.append(", \"transitions\": ").append(getDfaTransitions())
+				.append(", \"minimalStates\": ").append(getMinimalDfaStates());
+		sb.append("}, \"epsilonClosures\": ").append(getEpsilonClosures());
+		sb.append(", \"testCases\": ").append(getTestCases());
+		sb.append(", \"acceptedTestCases\": ").append(getAcceptedTestCases());
+		sb.append(", \"testCasesPerSecond\": ").append(
+				Math.round(getTestCasesPerSecond()));
+
+		long[] histogram = getLatencyHistogram();
+		sb.append(", \"latencyNanos\": {\"p50\": ")
+				.append(percentile(histogram, 0.5)).append(", \"p99\": ")
+				.append(percentile(histogram, 0.99))
+				.append(", \"p999\": ").append(percentile(histogram, 0.999))
+				.append(", \"histogram\": {");
+		boolean first = true;
+		for (int i = 0; i < histogram.length; i++) {
+			if (histogram[i] > 0) {
+				sb.append(first ? "" : ", ").append("\"<").append(1L << i)
+						.append("\": ").append(histogram[i]);
+				first = false;
+			}
+		}
+		sb.append("}}}");
+		return sb.toString();
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * Management interface of the pipeline metrics, registered with JMX by the
+ * --jmx option (JMX requires this interface to be public)
+ */
+public interface MetricsMBean {
+	public long getParseNanos();
+
+	public long getNfaBuildNanos();
+
+	public long getDeterminizeNanos();
+
+	public long getMinimizeNanos();
+
+	public long getMatchNanos();
+
+	public long getOutputNanos();
+
+	public long getNfaStates();
+
+	public long getNfaTransitions();
+
+	public long getDfaStates();
+
+	public long getDfaTransitions();
+
+	public long getMinimalDfaStates();
+
+	public long getEpsilonClosures();
+
+	public long getTestCases();
+
+	public long getAcceptedTestCases();
+
+	public double getTestCasesPerSecond();
+
+	public long[] getLatencyHistogram();
+
+	public String getSummary();
+}
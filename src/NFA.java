@@ -1,122 +1,212 @@
 /*
- * Object representation of a Non-deterministic Finite Automaton (NFA)
+ * Object representation of a Non-deterministic Finite Automaton (NFA), kept
+ * as an arena: states are numbered from 1 in the order they are added, and
+ * edges are appended to primitive arrays that grow by doubling, so an NFA is
+ * built in time linear in its size with no copying of its parts
  */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+
 class NFA {
+	// symbol of an edge that consumes no input
+	public static final int EPSILON = -1;
+
 	public int numStates;
 	public ArrayList<Character> alphabet;
-	public ArrayList<Transition> transitionFunction;
 	public int startState;
 	public ArrayList<Integer> endStates;
 
+	// edge i goes from state edgeFrom[i] to state edgeTo[i] on the symbol with
+	// alphabet index edgeSymbol[i] (or on EPSILON)
+	public int numEdges;
+	public int[] edgeFrom;
+	public int[] edgeSymbol;
+	public int[] edgeTo;
+
+	// adjacency index over the edges, built by buildIndex(): the epsilon
+	// edges of state q are epsilonEnd[epsilonStart[q] .. epsilonStart[q + 1]),
+	// the edges of q on the symbol with alphabet index s are
+	// symbolEnd[symbolStart[q * k + s] .. symbolStart[q * k + s + 1]), and
+	// closure[q] is the epsilon closure of q
+	//
+	// symbolIndex maps an input character to its alphabet index; it may map
+	// several characters to one symbol class, and if it is not given each
+	// alphabet character is a symbol of its own
+	public int[] symbolIndex;
+	public int[] epsilonStart;
+	public int[] epsilonEnd;
+	public int[] symbolStart;
+	public int[] symbolEnd;
+	public BitSet[] closure;
+
 	public NFA() {
-		numStates = 0;
-		alphabet = null;
-		transitionFunction = null;
-		startState = 0;
-		endStates = null;
+		this(null, null);
 	}
 
-	public NFA(int numStates, ArrayList<Character> alphabet,
-			ArrayList<Transition> transitionFunction, int startState,
-			ArrayList<Integer> endStates) {
-		this.numStates = numStates;
+	public NFA(ArrayList<Character> alphabet, int[] symbolIndex) {
+		numStates = 0;
 		this.alphabet = alphabet;
-		this.transitionFunction = transitionFunction;
-		this.startState = startState;
-		this.endStates = endStates;
+		this.symbolIndex = symbolIndex;
+		startState = 0;
+		endStates = new ArrayList<Integer>();
+		numEdges = 0;
+		edgeFrom = new int[16];
+		edgeSymbol = new int[16];
+		edgeTo = new int[16];
 	}
 
 	/*
-	 * Purpose: builds a new NFA that represents the concatenation of the NFAs
-	 * referenced by the left and right children of the tree node
-	 * 
-	 * @param numStates the number of states in the full NFA
+	 * Purpose: adds a new state with no edges
 	 * 
-	 * @param right the right node of the tree node ('this' is the left node)
-	 * 
-	 * @return the NFA resulting from the computed concatenation
+	 * @return the number of the new state
 	 */
-	public NFA concatenate(int numStates, NFA right) {
-		NFA toReturn = new NFA();
-		Toolbox toolbox = new Toolbox();
-
-		toReturn.numStates = this.numStates + right.numStates;
-		toReturn.alphabet = toolbox.cloneChar(this.alphabet);
-		toReturn.transitionFunction = toolbox
-				.cloneTran(this.transitionFunction);
-		for (Transition T : right.transitionFunction) {
-			toReturn.transitionFunction.add(T);
-		}
-		for (Integer i : this.endStates) {
-			toReturn.transitionFunction.add(new Transition(i.intValue(), 'e',
-					right.startState));
-		}
-		toReturn.endStates = toolbox.cloneInt(right.endStates);
-		toReturn.startState = this.startState;
-
-		return toReturn;
+	public int addState() {
+		return ++numStates;
 	}
 
 	/*
-	 * Purpose: builds a new NFA that represents the union of the NFAs
-	 * referenced by the left and right children of the tree node
+	 * Purpose: adds an edge between two states
 	 * 
-	 * @param numStates the number of states in the full NFA
+	 * @param from the state the edge leaves
 	 * 
-	 * @param right the right node of the tree node ('this' is the left node)
+	 * @param symbol the alphabet index of the edge, or EPSILON
 	 * 
-	 * @return the NFA resulting from the computed union
+	 * @param to the state the edge enters
 	 */
-	public NFA union(int numStates, NFA right) {
-		NFA toReturn = new NFA();
-		Toolbox toolbox = new Toolbox();
-
-		toReturn.numStates = this.numStates + right.numStates + 1;
-		toReturn.alphabet = toolbox.cloneChar(this.alphabet);
-		toReturn.transitionFunction = toolbox
-				.cloneTran(this.transitionFunction);
-		for (Transition T : right.transitionFunction) {
-			toReturn.transitionFunction.add(T);
-		}
-		toReturn.transitionFunction.add(new Transition(numStates + 1, 'e',
-				this.startState));
-		toReturn.transitionFunction.add(new Transition(numStates + 1, 'e',
-				right.startState));
-		toReturn.endStates = toolbox.cloneInt(this.endStates);
-		for (Integer i : right.endStates) {
-			toReturn.endStates.add(i);
+	public void addEdge(int from, int symbol, int to) {
+		if (numEdges == edgeFrom.length) {
+			edgeFrom = Arrays.copyOf(edgeFrom, 2 * numEdges);
+			edgeSymbol = Arrays.copyOf(edgeSymbol, 2 * numEdges);
+			edgeTo = Arrays.copyOf(edgeTo, 2 * numEdges);
 		}
-		toReturn.startState = numStates + 1;
-
-		return toReturn;
+		edgeFrom[numEdges] = from;
+		edgeSymbol[numEdges] = symbol;
+		edgeTo[numEdges] = to;
+		numEdges++;
 	}
 
 	/*
-	 * Purpose: builds a new NFA that represents the star of a given NFA, which
-	 * is referenced by the left child of the tree node
-	 * 
-	 * @param numStates the number of states in the full NFA
-	 * 
-	 * @return the NFA representing the computed star
+	 * Purpose: builds the per-state adjacency index of the edges and the
+	 * epsilon closure of every state - closures are computed once per
+	 * strongly connected component of the epsilon graph, in reverse
+	 * topological order, so each closure is the union of already computed ones
 	 */
-	public NFA star(int numStates) {
-		NFA toReturn = new NFA();
-		Toolbox toolbox = new Toolbox();
-
-		toReturn.numStates = this.numStates + 1;
-		toReturn.alphabet = toolbox.cloneChar(this.alphabet);
-		toReturn.transitionFunction = toolbox
-				.cloneTran(this.transitionFunction);
-		toReturn.transitionFunction.add(new Transition(numStates + 1, 'e',
-				this.startState));
-		for (Integer i : this.endStates) {
-			toReturn.transitionFunction.add(new Transition(i.intValue(), 'e',
-					numStates + 1));
+	public void buildIndex() {
+		int k = alphabet.size();
+
+		// states are numbered from 1, so size is one past the largest state
+		int size = numStates + 1;
+		if (symbolIndex == null) {
+			int maxChar = -1;
+			for (Character c : alphabet) {
+				maxChar = Math.max(maxChar, c.charValue());
+			}
+			symbolIndex = new int[maxChar + 1];
+			Arrays.fill(symbolIndex, -1);
+			for (int i = 0; i < k; i++) {
+				symbolIndex[alphabet.get(i).charValue()] = i;
+			}
+		}
+
+		// counting sort of the edges into compressed rows
+		epsilonStart = new int[size + 1];
+		symbolStart = new int[size * k + 1];
+		for (int i = 0; i < numEdges; i++) {
+			if (edgeSymbol[i] == EPSILON) {
+				epsilonStart[edgeFrom[i] + 1]++;
+			} else {
+				symbolStart[edgeFrom[i] * k + edgeSymbol[i] + 1]++;
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			epsilonStart[i + 1] += epsilonStart[i];
 		}
-		toReturn.endStates = toolbox.cloneInt(this.endStates);
-		toReturn.endStates.add(new Integer(numStates + 1));
-		toReturn.startState = numStates + 1;
+		for (int i = 0; i < size * k; i++) {
+			symbolStart[i + 1] += symbolStart[i];
+		}
+		epsilonEnd = new int[epsilonStart[size]];
+		symbolEnd = new int[symbolStart[size * k]];
+		int[] epsilonNext = Arrays.copyOf(epsilonStart, size);
+		int[] symbolNext = Arrays.copyOf(symbolStart, size * k);
+		for (int i = 0; i < numEdges; i++) {
+			if (edgeSymbol[i] == EPSILON) {
+				epsilonEnd[epsilonNext[edgeFrom[i]]++] = edgeTo[i];
+			} else {
+				symbolEnd[symbolNext[edgeFrom[i] * k + edgeSymbol[i]]++] = edgeTo[i];
+			}
+		}
+
+		// iterative Tarjan over the epsilon edges; a component is completed
+		// only after every component reachable from it
+		closure = new BitSet[size];
+		int[] order = new int[size];
+		int[] low = new int[size];
+		int[] edge = new int[size];
+		int[] call = new int[size];
+		int[] component = new int[size];
+		boolean[] onStack = new boolean[size];
+		Arrays.fill(order, -1);
+		int counter = 0, top = 0;
+
+		for (int root = 0; root < size; root++) {
+			if (order[root] >= 0) {
+				continue;
+			}
+			int depth = 0;
+			call[depth++] = root;
+			order[root] = low[root] = counter++;
+			edge[root] = epsilonStart[root];
+			component[top++] = root;
+			onStack[root] = true;
 
-		return toReturn;
+			while (depth > 0) {
+				int v = call[depth - 1];
+				if (edge[v] < epsilonStart[v + 1]) {
+					int w = epsilonEnd[edge[v]++];
+					if (order[w] < 0) {
+						order[w] = low[w] = counter++;
+						edge[w] = epsilonStart[w];
+						component[top++] = w;
+						onStack[w] = true;
+						call[depth++] = w;
+					} else if (onStack[w]) {
+						low[v] = Math.min(low[v], order[w]);
+					}
+					continue;
+				}
+
+				depth--;
+				if (depth > 0) {
+					int u = call[depth - 1];
+					low[u] = Math.min(low[u], low[v]);
+				}
+				if (low[v] == order[v]) {
+					int first = top;
+					do {
+						first--;
+					} while (component[first] != v);
+
+					BitSet c = new BitSet(size);
+					for (int i = first; i < top; i++) {
+						c.set(component[i]);
+					}
+					for (int i = first; i < top; i++) {
+						int q = component[i];
+						for (int j = epsilonStart[q]; j < epsilonStart[q + 1]; j++) {
+							if (!onStack[epsilonEnd[j]]) {
+								c.or(closure[epsilonEnd[j]]);
+							}
+						}
+					}
+					for (int i = first; i < top; i++) {
+						closure[component[i]] = c;
+						onStack[component[i]] = false;
+					}
+					top = first;
+				}
+			}
+		}
 	}
-}
\ No newline at end of file
+}
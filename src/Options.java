@@ -0,0 +1,216 @@
+/*
+ * Object representation of the command line options, which precede the input
+ * and output file names
+ */
+
+import java.util.ArrayList;
+
+class Options {
+	public boolean minimize;
+	public boolean derivatives;
+	public boolean prefilter;
+	public String engine;
+	public int lazyCacheStates;
+	public int flushInterval;
+	public int threads;
+	public int batchSize;
+	public boolean virtualThreads;
+	public boolean mmap;
+	public boolean search;
+	public int patterns;
+	public int daemonPort;
+	public int cacheEntries;
+	public int cacheMegabytes;
+	public String dfaCache;
+	public String metricsFile;
+	public boolean jmx;
+	public ArrayList<String> filenames;
+	public boolean valid;
+
+	public Options() {
+		minimize = true;
+		derivatives = false;
+		prefilter = true;
+		engine = "dfa";
+		lazyCacheStates = 10000;
+		flushInterval = 0;
+		threads = 1;
+		batchSize = 4096;
+		virtualThreads = false;
+		mmap = false;
+		search = false;
+		patterns = 0;
+		daemonPort = 0;
+		cacheEntries = 256;
+		cacheMegabytes = 256;
+		dfaCache = null;
+		metricsFile = null;
+		jmx = false;
+		filenames = new ArrayList<String>();
+		valid = true;
+	}
+
+	public Options(String[] args) {
+		this();
+		for (String arg : args) {
+			if (!arg.startsWith("--")) {
+				filenames.add(arg);
+			} else if (arg.equals("--no-minimize")) {
+				minimize = false;
+			} else if (arg.equals("--derivatives")) {
+				derivatives = true;
+			} else if (arg.equals("--no-prefilter")) {
+				prefilter = false;
+			} else if (arg.equals("--engine=dfa")
+					|| arg.equals("--engine=lazy")
+					|| arg.equals("--engine=nfa")
+					|| arg.equals("--engine=glushkov")
+					|| arg.equals("--engine=bytecode")) {
+				engine = arg.substring("--engine=".length());
+			} else if (arg.startsWith("--flush=")) {
+				flushInterval = parseInt(arg, "--flush=");
+			} else if (arg.startsWith("--lazy-cache=")) {
+				lazyCacheStates = parseInt(arg, "--lazy-cache=");
+			} else if (arg.startsWith("--threads=")) {
+				threads = parseInt(arg, "--threads=");
+			} else if (arg.startsWith("--batch=")) {
+				batchSize = parseInt(arg, "--batch=");
+			} else if (arg.equals("--virtual-threads")) {
+				virtualThreads = true;
+			} else if (arg.equals("--mmap")) {
+				mmap = true;
+			} else if (arg.equals("--search")) {
+				search = true;
+			} else if (arg.startsWith("--patterns=")) {
+				patterns = parseInt(arg, "--patterns=");
+			} else if (arg.startsWith("--dfa-cache=")) {
+				dfaCache = arg.substring("--dfa-cache=".length());
+			} else if (arg.equals("--no-dfa-cache")) {
+				dfaCache = null;
+			} else if (arg.startsWith("--daemon=")) {
+				daemonPort = parseInt(arg, "--daemon=");
+			} else if (arg.startsWith("--cache-size=")) {
+				cacheEntries = parseInt(arg, "--cache-size=");
+			} else if (arg.startsWith("--cache-memory=")) {
+				cacheMegabytes = parseInt(arg, "--cache-memory=");
+			} else if (arg.startsWith("--metrics=")) {
+				metricsFile = arg.substring("--metrics=".length());
+			} else if (arg.equals("--jmx")) {
+				jmx = true;
+			} else {
+				valid = false;
+			}
+		}
+		if (filenames.size() != 0 && filenames.size() != 2) {
+			valid = false;
+		}
+
+		// the lazy engine fills its cache while matching, so it cannot be
+		// shared between worker threads
+		if (threads > 1 && engine.equals("lazy")) {
+			valid = false;
+		}
+
+		// memory mapped input runs the DFA table directly over the bytes
+		if (mmap && (threads > 1 || !engine.equals("dfa"))) {
+			valid = false;
+		}
+
+		// derivatives build a full DFA
+		if (derivatives && !engine.equals("dfa") && !engine.equals("glushkov")
+				&& !engine.equals("bytecode")) {
+			valid = false;
+		}
+
+		// a search scans the input as a single stream with the full DFA
+		if (search && (mmap || threads > 1 || !engine.equals("dfa"))) {
+			valid = false;
+		}
+
+		// a set of patterns is always combined into one full DFA
+		if (patterns > 0 && (search || mmap || threads > 1 || !engine
+				.equals("dfa"))) {
+			valid = false;
+		}
+
+		// the daemon reads its requests from the socket, not from files
+		if (daemonPort > 0 && !filenames.isEmpty()) {
+			valid = false;
+		}
+	}
+
+	/*
+	 * Purpose: parses the positive integer value of an option
+	 * 
+	 * @param arg the option, as given on the command line
+	 * 
+	 * @param prefix the option name, including the '='
+	 * 
+	 * @return the value of the option, or 0 (and the options are marked as
+	 * invalid) if the value is not a positive integer
+	 */
+	private int parseInt(String arg, String prefix) {
+		try {
+			int value = Integer.parseInt(arg.substring(prefix.length()));
+			if (value > 0) {
+				return value;
+			}
+		} catch (NumberFormatException e) {
+		}
+		valid = false;
+		return 0;
+	}
+
+	/*
+	 * Purpose: prints the program usage, including every supported option
+	 */
+	public static void printUsage() {
+		System.out.println("Incorrect program usage.");
+		System.out
+				.println("Usage:\n\tjava RegularExpressionParser [options] inputFilename outputFilename");
+		System.out.println("\t\t\tOR");
+		System.out.println("\tjava RegularExpressionParser [options]");
+		System.out.println("\t\t\tOR");
+		System.out
+				.println("\tjava RegularExpressionParser --daemon=PORT [options]");
+		System.out.println("Options:");
+		System.out
+				.println("\t--no-minimize\tskip DFA minimization before matching");
+		System.out
+				.println("\t--derivatives\tbuild the DFA from Brzozowski derivatives instead of an NFA");
+		System.out
+				.println("\t--no-prefilter\tdo not reject test cases lacking a literal every match contains");
+		System.out
+				.println("\t--engine=E\tmatching engine: dfa (default), lazy, nfa, glushkov or bytecode");
+		System.out
+				.println("\t--lazy-cache=N\tmaximum number of cached states of the lazy engine");
+		System.out
+				.println("\t--flush=N\tflush the output file after every N results");
+		System.out
+				.println("\t--threads=N\tevaluate test cases on N worker threads (not with --engine=lazy)");
+		System.out
+				.println("\t--batch=N\tnumber of test cases handed to a worker at once");
+		System.out
+				.println("\t--virtual-threads\tuse virtual worker threads, where the JVM supports them");
+		System.out
+				.println("\t--mmap\t\tmemory map an ASCII input file and match its bytes directly (dfa engine only)");
+		System.out
+				.println("\t--search\tprint the span of every leftmost-longest match in the text (dfa engine only)");
+		System.out
+				.println("\t--patterns=N\tread N expressions and print the matching ones for each test case (dfa engine only)");
+		System.out
+				.println("\t--dfa-cache=DIR\tload and store compiled DFAs in an on-disk cache in DIR");
+		System.out
+				.println("\t--no-dfa-cache\tneither load nor store compiled DFAs on disk (default)");
+		System.out
+				.println("\t--daemon=PORT\tanswer match requests on a local port, caching compiled DFAs");
+		System.out
+				.println("\t--cache-size=N\tmaximum number of DFAs cached by the daemon");
+		System.out
+				.println("\t--cache-memory=MB\tmaximum memory of the DFAs cached by the daemon");
+		System.out
+				.println("\t--metrics=FILE\twrite phase timings, automaton sizes and match latencies to FILE as JSON");
+		System.out
+				.println("\t--jmx\t\tpublish the metrics as the JMX MBean RegularExpressionParser:type=Metrics");
+	}
+}
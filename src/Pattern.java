@@ -0,0 +1,140 @@
+/*
+ * Immutable compiled form of a Regular Expression, for programs that embed
+ * the parser as a library: a Pattern is compiled once and may then be matched
+ * against any number of inputs from any number of threads at once. Compiling
+ * never exits the JVM; an invalid expression is reported by throwing an
+ * InvalidExpressionException.
+ */
+
+import java.util.ArrayList;
+
+final class Pattern implements Matcher {
+	private final String alphabet;
+	private final String expression;
+	private final int numStates;
+	private final int k;
+	private final int startState;
+	private final int[] table;
+	private final boolean[] accept;
+	private final boolean[] absorbing;
+	private final int[] symbolIndex;
+
+	private Pattern(String alphabet, String expression, DFA dfa) {
+		if (dfa.table == null) {
+			dfa.buildTable();
+		}
+		this.alphabet = alphabet;
+		this.expression = expression;
+		this.numStates = dfa.numStates;
+		this.k = dfa.alphabet.size();
+		this.startState = dfa.startState;
+
+		// private copies, since the arrays of a DFA are public
+		this.table = dfa.table.clone();
+		this.accept = dfa.accept.clone();
+		this.absorbing = dfa.absorbing.clone();
+		this.symbolIndex = dfa.symbolIndex.clone();
+	}
+
+	/*
+	 * Purpose: compiles a Regular Expression to its minimal DFA - safe to call
+	 * from several threads at once
+	 * 
+	 * @param alphabet the characters of the alphabet
+	 * 
+	 * @param expression the text representation of the Regular Expression
+	 * 
+	 * @return the compiled pattern
+	 * 
+	 * @throws InvalidExpressionException if the expression is not valid
+	 */
+	public static Pattern compile(String alphabet, String expression)
+			throws InvalidExpressionException {
+		if (alphabet == null || expression == null) {
+			throw new InvalidExpressionException("missing alphabet or expression");
+		}
+		ArrayList<Character> characters = new ArrayList<Character>();
+		for (int i = 0; i < alphabet.length(); i++) {
+			characters.add(Character.valueOf(alphabet.charAt(i)));
+		}
+		DFA dfa = RegularExpressionParser.compileDFA(new RegularExpression(
+				characters, expression), true);
+		return new Pattern(alphabet, expression, dfa);
+	}
+
+	public String alphabet() {
+		return alphabet;
+	}
+
+	public String expression() {
+		return expression;
+	}
+
+	public int numStates() {
+		return numStates;
+	}
+
+	/*
+	 * Purpose: starts an incremental match, for inputs fed in chunks rather
+	 * than held in memory as a whole
+	 * 
+	 * @return a matcher at the start state, sharing this pattern's tables
+	 */
+	public StreamMatcher streamMatcher() {
+		return new StreamMatcher(k, startState, table, accept, absorbing,
+				symbolIndex);
+	}
+
+	public boolean matches(String input) {
+		return matches((CharSequence) input);
+	}
+
+	/*
+	 * Purpose: tests the input on this pattern - characters outside of the
+	 * alphabet are skipped, as in the input files, and so is the rest of the
+	 * input once a dead or universal state is entered
+	 * 
+	 * @param input the input to be tested
+	 * 
+	 * @return a boolean which represents if the input is in the language
+	 */
+	public boolean matches(CharSequence input) {
+		int state = startState;
+		for (int i = 0, size = input.length(); i < size
+				&& !absorbing[state]; i++) {
+			char c = input.charAt(i);
+			if (c < symbolIndex.length && symbolIndex[c] >= 0) {
+				state = table[state * k + symbolIndex[c]];
+			}
+		}
+		return accept[state];
+	}
+
+	/*
+	 * Purpose: tests a range of bytes on this pattern, each byte standing for
+	 * the character of the same value (ISO-8859-1)
+	 * 
+	 * @param input the bytes holding the input
+	 * 
+	 * @param offset the index of the first byte of the input
+	 * 
+	 * @param length the number of bytes of the input
+	 * 
+	 * @return a boolean which represents if the input is in the language
+	 */
+	public boolean matches(byte[] input, int offset, int length) {
+		if (offset < 0 || length < 0 || offset > input.length - length) {
+			throw new IndexOutOfBoundsException("offset " + offset
+					+ ", length " + length + ", size " + input.length);
+		}
+		int state = startState;
+		for (int i = offset, end = offset + length; i < end
+				&& !absorbing[state]; i++) {
+			int c = input[i] & 0xFF;
+			if (c < symbolIndex.length && symbolIndex[c] >= 0) {
+				state = table[state * k + symbolIndex[c]];
+			}
+		}
+		return accept[state];
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ * Immutable compiled form of a set of Regular Expressions over one alphabet,
+ * which finds every expression matching an input in a single pass: the
+ * expressions are combined into one DFA whose states are labelled by the set
+ * of expressions they accept. Like a Pattern, a PatternSet may be matched
+ * from any number of threads at once.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+
+final class PatternSet implements Matcher {
+	private static final int[] NONE = new int[0];
+
+	private final String alphabet;
+	private final String[] expressions;
+	private final int numStates;
+	private final int k;
+	private final int startState;
+	private final int[] table;
+	private final int[] symbolIndex;
+
+	// the expressions accepted by state q are matching[label[q]], as indexes
+	// into expressions in increasing order (label 0 accepts none)
+	private final int[] label;
+	private final int[][] matching;
+
+	private PatternSet(String alphabet, String[] expressions, DFA dfa,
+			int[] label, int[][] matching) {
+		this.alphabet = alphabet;
+		this.expressions = expressions.clone();
+		this.numStates = dfa.numStates;
+		this.k = dfa.alphabet.size();
+		this.startState = dfa.startState;
+		this.table = dfa.table;
+		this.symbolIndex = dfa.symbolIndex.clone();
+		this.label = label;
+		this.matching = matching;
+	}
+
+	/*
+	 * Purpose: compiles a set of Regular Expressions into one minimal DFA -
+	 * safe to call from several threads at once
+	 * 
+	 * @param alphabet the characters of the alphabet
+	 * 
+	 * @param expressions the text representations of the Regular Expressions
+	 * 
+	 * @return the compiled set
+	 * 
+	 * @throws InvalidExpressionException if any expression is not valid, with
+	 * the index of the first invalid expression in its message
+	 */
+	public static PatternSet compile(String alphabet, String... expressions)
+			throws InvalidExpressionException {
+		if (alphabet == null || expressions == null) {
+			throw new InvalidExpressionException("missing alphabet or expressions");
+		}
+		ArrayList<Character> characters = new ArrayList<Character>();
+		for (int i = 0; i < alphabet.length(); i++) {
+			characters.add(Character.valueOf(alphabet.charAt(i)));
+		}
+
+		// the symbol classes of all expressions together, so that each
+		// expression's NFA reads the same symbols
+		for (int i = 0; i < expressions.length; i++) {
+			if (expressions[i] == null) {
+				throw new InvalidExpressionException("expression " + i
+						+ ": missing expression");
+			}
+		}
+		RegularExpression classes = new RegularExpression(characters, "");
+		classes.buildSymbolClasses(expressions);
+
+		// one NFA with an epsilon transition from its start state to the
+		// start of each expression's NFA; owner maps an accept state to the
+		// index of its expression
+		NFA nfa = new NFA(classes.classes, classes.symbolIndex);
+		nfa.startState = nfa.addState();
+		HashMap<Integer, Integer> owner = new HashMap<Integer, Integer>();
+		for (int i = 0; i < expressions.length; i++) {
+			RegularExpression re = new RegularExpression(characters,
+					expressions[i]);
+			re.symbolIndex = classes.symbolIndex;
+			re.classes = classes.classes;
+			NFA part;
+			try {
+				part = RegularExpressionParser.traverse(
+						RegularExpressionParser.buildSyntaxTree(re), re);
+			} catch (InvalidExpressionException e) {
+				throw new InvalidExpressionException("expression " + i + ": "
+						+ e.getMessage());
+			}
+
+			int offset = nfa.numStates;
+			for (int q = 1; q <= part.numStates; q++) {
+				nfa.addState();
+			}
+			for (int j = 0; j < part.numEdges; j++) {
+				nfa.addEdge(part.edgeFrom[j] + offset, part.edgeSymbol[j],
+						part.edgeTo[j] + offset);
+			}
+			nfa.addEdge(nfa.startState, NFA.EPSILON, part.startState + offset);
+			for (Integer end : part.endStates) {
+				Integer state = Integer.valueOf(end.intValue() + offset);
+				nfa.endStates.add(state);
+				owner.put(state, Integer.valueOf(i));
+			}
+		}
+
+		// each DFA state of the subset construction is labelled by the set of
+		// expressions whose accept states it holds
+		ArrayList<BitSet> subsets = new ArrayList<BitSet>();
+		DFA dfa = RegularExpressionParser.subsetConstruction(nfa, subsets);
+		int numStates = dfa.numStates;
+		HashMap<BitSet, Integer> labels = new HashMap<BitSet, Integer>();
+		ArrayList<BitSet> labelSets = new ArrayList<BitSet>();
+		labels.put(new BitSet(), Integer.valueOf(0));
+		labelSets.add(new BitSet());
+		int[] stateLabel = new int[numStates + 1];
+		for (int q = 1; q <= numStates; q++) {
+			BitSet subset = subsets.get(q - 1);
+			BitSet matched = new BitSet();
+			for (Integer end : nfa.endStates) {
+				if (subset.get(end.intValue())) {
+					matched.set(owner.get(end).intValue());
+				}
+			}
+			Integer l = labels.get(matched);
+			if (l == null) {
+				l = Integer.valueOf(labelSets.size());
+				labels.put(matched, l);
+				labelSets.add(matched);
+			}
+			stateLabel[q] = l.intValue();
+		}
+
+		int[] minimalLabel = new int[numStates + 1];
+		DFA minimal = dfa.minimize(stateLabel, minimalLabel);
+
+		int[][] matching = new int[labelSets.size()][];
+		for (int l = 0; l < matching.length; l++) {
+			BitSet set = labelSets.get(l);
+			matching[l] = new int[set.cardinality()];
+			for (int i = set.nextSetBit(0), j = 0; i >= 0; i = set
+					.nextSetBit(i + 1)) {
+				matching[l][j++] = i;
+			}
+		}
+		return new PatternSet(alphabet, expressions, minimal,
+				Arrays.copyOf(minimalLabel, minimal.numStates + 1),
+				matching);
+	}
+
+	public String alphabet() {
+		return alphabet;
+	}
+
+	public String expression(int index) {
+		return expressions[index];
+	}
+
+	public int size() {
+		return expressions.length;
+	}
+
+	public int numStates() {
+		return numStates;
+	}
+
+	/*
+	 * Purpose: tests if any expression of the set matches the input
+	 * 
+	 * @param input the input to be tested
+	 * 
+	 * @return a boolean which represents if the input is in the language of
+	 * at least one expression
+	 */
+	public boolean matches(String input) {
+		return label[run(input)] != 0;
+	}
+
+	/*
+	 * Purpose: finds every expression of the set matching the input in one
+	 * pass - characters outside of the alphabet are skipped, as in the input
+	 * files
+	 * 
+	 * @param input the input to be tested
+	 * 
+	 * @return the indexes of the matching expressions, in increasing order
+	 */
+	public int[] matchAll(CharSequence input) {
+		int l = label[run(input)];
+		return l == 0 ? NONE : matching[l].clone();
+	}
+
+	/*
+	 * Purpose: runs the combined DFA over the input
+	 * 
+	 * @param input the input to be tested
+	 * 
+	 * @return the state reached
+	 */
+	private int run(CharSequence input) {
+		int state = startState;
+		for (int i = 0, size = input.length(); i < size; i++) {
+			char c = input.charAt(i);
+			if (c < symbolIndex.length && symbolIndex[c] >= 0) {
+				state = table[state * k + symbolIndex[c]];
+			}
+		}
+		return state;
+	}
+}
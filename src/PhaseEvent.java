@@ -0,0 +1,164 @@
+/*
+ * JFR event recorded once per pipeline phase (parse, NFA build,
+ * determinization, minimization, matching, output), with the number of items
+ * the phase produced or processed (states, or test cases).
+ *
+ * The event type is defined at runtime with jdk.jfr.EventFactory, reached
+ * reflectively, so that the program compiles for Java 8 and runs on JDKs
+ * without the flight recorder (Java 8, or runtimes built without the jdk.jfr
+ * module), where no event is ever created.
+ */
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+final class PhaseEvent {
+
+	// FlightRecorder.isInitialized, or null without the flight recorder
+	private static final Method isInitialized;
+	private static final Method begin;
+	private static final Method end;
+	private static final Method shouldCommit;
+	private static final Method set;
+	private static final Method commit;
+
+	// the EventFactory of the event type, defined on first use, since
+	// registering it costs hundreds of milliseconds
+	private static Object factory;
+	private static Method newEvent;
+
+	static {
+		Method initialized = null, b = null, e = null, should = null, s = null, c = null;
+		try {
+			Class<?> event = Class.forName("jdk.jfr.Event");
+			b = event.getMethod("begin");
+			e = event.getMethod("end");
+			should = event.getMethod("shouldCommit");
+			s = event.getMethod("set", int.class, Object.class);
+			c = event.getMethod("commit");
+			initialized = Class.forName("jdk.jfr.FlightRecorder").getMethod(
+					"isInitialized");
+		} catch (ReflectiveOperationException ex) {
+			initialized = null;
+		} catch (LinkageError ex) {
+			initialized = null;
+		}
+		isInitialized = initialized;
+		begin = b;
+		end = e;
+		shouldCommit = should;
+		set = s;
+		commit = c;
+	}
+
+	private final Object event;
+
+	private PhaseEvent(Object event) {
+		this.event = event;
+	}
+
+	/*
+	 * Purpose: begins the event of a phase, while the flight recorder is
+	 * running
+	 * 
+	 * @return the event, or null if the flight recorder is not running or not
+	 * available
+	 */
+	public static PhaseEvent start() {
+		if (isInitialized == null) {
+			return null;
+		}
+		try {
+			if (!((Boolean) isInitialized.invoke(null)).booleanValue()) {
+				return null;
+			}
+			Object event = newEvent();
+			begin.invoke(event);
+			return new PhaseEvent(event);
+		} catch (ReflectiveOperationException ex) {
+			return null;
+		}
+	}
+
+	/*
+	 * Purpose: ends the event and commits it, if the recording wants it
+	 * 
+	 * @param phase the name of the phase
+	 * 
+	 * @param items the number of states built, or test cases processed
+	 */
+	public void finish(String phase, long items) {
+		try {
+			end.invoke(event);
+			if (((Boolean) shouldCommit.invoke(event)).booleanValue()) {
+				set.invoke(event, Integer.valueOf(0), phase);
+				set.invoke(event, Integer.valueOf(1), Long.valueOf(items));
+				commit.invoke(event);
+			}
+		} catch (ReflectiveOperationException ex) {
+		}
+	}
+
+	/*
+	 * Purpose: creates an event of the RegularExpressionParser.Phase type,
+	 * defining the type first if needed
+	 * 
+	 * @return the event, not yet begun
+	 */
+	private static synchronized Object newEvent()
+			throws ReflectiveOperationException {
+		if (factory == null) {
+			Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory");
+			Class<?> annotationClass = Class
+					.forName("jdk.jfr.AnnotationElement");
+			Class<?> valueClass = Class.forName("jdk.jfr.ValueDescriptor");
+			Constructor<?> annotation = annotationClass.getConstructor(
+					Class.class, Object.class);
+			Constructor<?> value = valueClass.getConstructor(Class.class,
+					String.class, List.class);
+
+			List<Object> annotations = Arrays.asList(
+					annotation.newInstance(jfr("Name"),
+							"RegularExpressionParser.Phase"),
+					annotation.newInstance(jfr("Label"), "Pipeline Phase"),
+					annotation.newInstance(jfr("Category"),
+							new String[] { "Regular Expression Parser" }),
+					annotation.newInstance(jfr("Description"),
+							"A phase of the RE >> NFA >> DFA pipeline"));
+			// fields 0 and 1, as set by finish
+			List<Object> fields = Arrays.asList(
+					value.newInstance(String.class, "phase", Collections
+							.singletonList(annotation.newInstance(
+									jfr("Label"), "Phase"))),
+					value.newInstance(long.class, "items", Arrays.asList(
+							annotation.newInstance(jfr("Label"), "Items"),
+							annotation.newInstance(jfr("Description"),
+									"States built, or test cases processed, by the phase"))));
+			try {
+				factory = factoryClass.getMethod("create", List.class,
+						List.class).invoke(null, annotations, fields);
+			} catch (InvocationTargetException ex) {
+				throw new ReflectiveOperationException(ex.getCause());
+			}
+			newEvent = factoryClass.getMethod("newEvent");
+		}
+		return newEvent.invoke(factory);
+	}
+
+	/*
+	 * Purpose: finds a JFR annotation type
+	 * 
+	 * @param name the simple name of the annotation, in package jdk.jfr
+	 * 
+	 * @return the annotation type
+	 */
+	private static Class<? extends Annotation> jfr(String name)
+			throws ClassNotFoundException {
+		return Class.forName("jdk.jfr." + name).asSubclass(Annotation.class);
+	}
+}
@@ -0,0 +1,470 @@
+/*
+ * Cheap rejection test run before a matching engine: literals that every
+ * match must start with, end with or contain are extracted from the syntax
+ * tree, and a test case that lacks them is rejected without running the
+ * engine. Characters outside of the alphabet are skipped by the engines, so
+ * the prefix and suffix tests skip them too, and a missing required factor
+ * only rejects a test case made of alphabet characters alone.
+ * 
+ * Holds no mutable state, so it may be shared between threads whenever the
+ * engine it wraps can.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+class Prefilter implements Matcher {
+
+	// limits on the literal sets kept per node of the syntax tree
+	public static final int MAX_LITERALS = 16;
+	public static final int MAX_LENGTH = 32;
+	public static final int MAX_FACTORS = 4;
+
+	public Matcher matcher;
+
+	// every match starts with one of prefixes, ends with one of suffixes and
+	// contains one of factors (null when nothing is known)
+	public String[] prefixes;
+	public String[] suffixes;
+	public String[] factors;
+	private int[] symbolIndex;
+
+	private Prefilter(Matcher matcher, int[] symbolIndex, Literals literals) {
+		this.matcher = matcher;
+		this.symbolIndex = symbolIndex;
+		prefixes = toArray(literals.prefixes);
+		suffixes = toArray(literals.suffixes);
+		TreeSet<String> factor = best(literals.factors);
+		if (factor != null && !factor.equals(literals.prefixes)
+				&& !factor.equals(literals.suffixes)) {
+			factors = toArray(factor);
+		}
+	}
+
+	/*
+	 * Purpose: wraps a matching engine with the prefilter of a Regular
+	 * Expression
+	 * 
+	 * @param matcher the engine of the Regular Expression
+	 * 
+	 * @param re the Regular Expression
+	 * 
+	 * @return the wrapped engine, or matcher itself if no literal is required
+	 */
+	public static Matcher wrap(Matcher matcher, RegularExpression re) {
+		SyntaxTree tree;
+		try {
+			tree = RegularExpressionParser.buildSyntaxTree(re);
+		} catch (InvalidExpressionException e) {
+			return matcher;
+		}
+		Prefilter filter = new Prefilter(matcher, re.symbolIndex, analyze(
+				tree, re));
+		if (filter.prefixes == null && filter.suffixes == null
+				&& filter.factors == null) {
+			return matcher;
+		}
+		return filter;
+	}
+
+	/*
+	 * Purpose: extracts the literals of every node of a syntax tree, children
+	 * first, as the exact set of strings a node matches while it is small,
+	 * and otherwise as sets of prefixes, suffixes and required factors
+	 * 
+	 * @param tree the syntax tree
+	 * 
+	 * @param re the Regular Expression of the tree
+	 * 
+	 * @return the literals of the root
+	 */
+	public static Literals analyze(SyntaxTree tree, RegularExpression re) {
+		Literals[] literals = new Literals[tree.size];
+		for (int node = 0; node < tree.size; node++) {
+			char c = tree.data[node];
+			int left = tree.left[node], right = tree.right[node];
+			TreeSet<String> exact = new TreeSet<String>();
+
+			if (tree.isLeaf(node)) {
+				// a character outside of the alphabet is never read, so it
+				// matches nothing
+				if (c == 'e') {
+					exact.add("");
+				} else if (re.inAlphabet(c)) {
+					exact.add(String.valueOf(c));
+				}
+				literals[node] = new Literals(exact);
+			} else if (c == '*') {
+				Literals operand = literals[left];
+				if (operand.exact != null && operand.exact.size() <= 1
+						&& (operand.exact.isEmpty() || operand.exact
+								.contains(""))) {
+					exact.add("");
+					literals[node] = new Literals(exact);
+				} else {
+					literals[node] = new Literals(null);
+				}
+			} else if (c == '@') {
+				// the right child holds the first operand
+				literals[node] = concatenate(literals[right], literals[left]);
+			} else {
+				literals[node] = union(literals[left], literals[right]);
+			}
+
+			// each node has a single parent, so its literals are done with
+			if (left >= 0) {
+				literals[left] = null;
+			}
+			if (right >= 0) {
+				literals[right] = null;
+			}
+		}
+		return literals[tree.root];
+	}
+
+	/*
+	 * Purpose: computes the literals of a concatenation
+	 * 
+	 * @param first the literals of the first operand
+	 * 
+	 * @param second the literals of the second operand
+	 * 
+	 * @return the literals of the concatenation
+	 */
+	private static Literals concatenate(Literals first, Literals second) {
+		if (first.exact != null && second.exact != null) {
+			TreeSet<String> product = cross(first.exact, second.exact);
+			if (product != null && longest(product) <= MAX_LENGTH) {
+				return new Literals(product);
+			}
+		}
+
+		Literals result = new Literals(null);
+		if (first.exact != null) {
+			TreeSet<String> product = cross(first.exact, second.prefixes);
+			result.prefixes = known(trim(product != null ? product
+					: first.exact, true));
+		} else {
+			result.prefixes = first.prefixes;
+		}
+		if (second.exact != null) {
+			TreeSet<String> product = cross(first.suffixes, second.exact);
+			result.suffixes = known(trim(product != null ? product
+					: second.exact, false));
+		} else {
+			result.suffixes = second.suffixes;
+		}
+
+		// a match holds a suffix of the first operand right before a prefix
+		// of the second
+		result.factors.addAll(first.factors);
+		result.factors.addAll(second.factors);
+		TreeSet<String> joined = known(trim(cross(first.suffixes,
+				second.prefixes), true));
+		if (joined != null) {
+			result.factors.add(joined);
+		}
+		prune(result.factors);
+		return result;
+	}
+
+	/*
+	 * Purpose: computes the literals of a union
+	 * 
+	 * @param a the literals of one operand
+	 * 
+	 * @param b the literals of the other operand
+	 * 
+	 * @return the literals of the union
+	 */
+	private static Literals union(Literals a, Literals b) {
+		// the empty language is the identity of a union
+		if (a.exact != null && a.exact.isEmpty()) {
+			return b;
+		} else if (b.exact != null && b.exact.isEmpty()) {
+			return a;
+		}
+		if (a.exact != null && b.exact != null) {
+			TreeSet<String> all = merge(a.exact, b.exact);
+			if (all != null) {
+				return new Literals(all);
+			}
+		}
+
+		Literals result = new Literals(null);
+		result.prefixes = merge(a.prefixes, b.prefixes);
+		result.suffixes = merge(a.suffixes, b.suffixes);
+		TreeSet<String> factor = merge(best(a.factors), best(b.factors));
+		if (factor != null) {
+			result.factors.add(factor);
+		}
+		return result;
+	}
+
+	/*
+	 * Purpose: concatenates every string of one set with every string of
+	 * another
+	 * 
+	 * @return the set of concatenations, or null if either set is unknown or
+	 * the result has more than MAX_LITERALS strings
+	 */
+	private static TreeSet<String> cross(TreeSet<String> a, TreeSet<String> b) {
+		if (a == null || b == null
+				|| (long) a.size() * b.size() > MAX_LITERALS) {
+			return null;
+		}
+		TreeSet<String> product = new TreeSet<String>();
+		for (String x : a) {
+			for (String y : b) {
+				product.add(x + y);
+			}
+		}
+		return product;
+	}
+
+	/*
+	 * Purpose: unites two sets of strings
+	 * 
+	 * @return the union, or null if either set is unknown or the result has
+	 * more than MAX_LITERALS strings
+	 */
+	private static TreeSet<String> merge(TreeSet<String> a, TreeSet<String> b) {
+		if (a == null || b == null) {
+			return null;
+		}
+		TreeSet<String> all = new TreeSet<String>(a);
+		all.addAll(b);
+		return all.size() <= MAX_LITERALS ? all : null;
+	}
+
+	/*
+	 * Purpose: shortens the strings of a set to at most MAX_LENGTH
+	 * characters, keeping their start (for prefixes and factors) or their end
+	 * (for suffixes)
+	 * 
+	 * @return the shortened set, or null if set is null
+	 */
+	private static TreeSet<String> trim(TreeSet<String> set, boolean keepStart) {
+		if (set == null || longest(set) <= MAX_LENGTH) {
+			return set;
+		}
+		TreeSet<String> trimmed = new TreeSet<String>();
+		for (String s : set) {
+			if (s.length() <= MAX_LENGTH) {
+				trimmed.add(s);
+			} else if (keepStart) {
+				trimmed.add(s.substring(0, MAX_LENGTH));
+			} else {
+				trimmed.add(s.substring(s.length() - MAX_LENGTH));
+			}
+		}
+		return trimmed;
+	}
+
+	/*
+	 * Purpose: drops a set holding the empty string, which tells nothing
+	 * 
+	 * @return set, or null if it is null or holds the empty string
+	 */
+	private static TreeSet<String> known(TreeSet<String> set) {
+		return set == null || set.contains("") ? null : set;
+	}
+
+	/*
+	 * @return the length of the longest string of a set
+	 */
+	private static int longest(TreeSet<String> set) {
+		int length = 0;
+		for (String s : set) {
+			length = Math.max(length, s.length());
+		}
+		return length;
+	}
+
+	/*
+	 * @return the length of the shortest string of a set, which bounds how
+	 * selective the set is
+	 */
+	private static int shortest(TreeSet<String> set) {
+		int length = Integer.MAX_VALUE;
+		for (String s : set) {
+			length = Math.min(length, s.length());
+		}
+		return length;
+	}
+
+	/*
+	 * Purpose: picks the most selective of a list of factor sets
+	 * 
+	 * @return the set whose shortest string is longest (fewest strings on a
+	 * tie), or null if the list is empty
+	 */
+	private static TreeSet<String> best(ArrayList<TreeSet<String>> sets) {
+		TreeSet<String> best = null;
+		for (TreeSet<String> set : sets) {
+			if (best == null
+					|| shortest(set) > shortest(best)
+					|| (shortest(set) == shortest(best) && set.size() < best
+							.size())) {
+				best = set;
+			}
+		}
+		return best;
+	}
+
+	/*
+	 * Purpose: keeps only the MAX_FACTORS most selective factor sets
+	 */
+	private static void prune(ArrayList<TreeSet<String>> sets) {
+		while (sets.size() > MAX_FACTORS) {
+			TreeSet<String> worst = sets.get(0);
+			for (TreeSet<String> set : sets) {
+				if (shortest(set) < shortest(worst)
+						|| (shortest(set) == shortest(worst) && set.size() > worst
+								.size())) {
+					worst = set;
+				}
+			}
+			sets.remove(worst);
+		}
+	}
+
+	private static String[] toArray(TreeSet<String> set) {
+		return set == null ? null : set.toArray(new String[set.size()]);
+	}
+
+	/*
+	 * Purpose: tests the input on the wrapped engine, unless the prefilter
+	 * rejects it
+	 * 
+	 * @param input the input to be tested
+	 * 
+	 * @return a boolean which represents if the string input is in the
+	 * language
+	 */
+	public boolean matches(String input) {
+		return mayMatch(input) && matcher.matches(input);
+	}
+
+	/*
+	 * Purpose: tests the input against the required literals
+	 * 
+	 * @param input the input to be tested
+	 * 
+	 * @return false if the input cannot be in the language
+	 */
+	public boolean mayMatch(String input) {
+		if (prefixes != null && !startsWithAny(input)) {
+			return false;
+		}
+		if (suffixes != null && !endsWithAny(input)) {
+			return false;
+		}
+		if (factors != null) {
+			for (String factor : factors) {
+				if (input.indexOf(factor) >= 0) {
+					return true;
+				}
+			}
+			// a character outside of the alphabet may split a factor
+			for (int i = 0, size = input.length(); i < size; i++) {
+				if (skipped(input.charAt(i))) {
+					return true;
+				}
+			}
+			return false;
+		}
+		return true;
+	}
+
+	/*
+	 * Purpose: tests if the input, without its characters outside of the
+	 * alphabet, starts with one of the prefixes
+	 */
+	private boolean startsWithAny(String input) {
+		int size = input.length();
+		for (String prefix : prefixes) {
+			int i = 0, j = 0;
+			for (; j < prefix.length(); j++, i++) {
+				while (i < size && skipped(input.charAt(i))) {
+					i++;
+				}
+				if (i == size || input.charAt(i) != prefix.charAt(j)) {
+					break;
+				}
+			}
+			if (j == prefix.length()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Purpose: tests if the input, without its characters outside of the
+	 * alphabet, ends with one of the suffixes
+	 */
+	private boolean endsWithAny(String input) {
+		for (String suffix : suffixes) {
+			int i = input.length() - 1, j = suffix.length() - 1;
+			for (; j >= 0; j--, i--) {
+				while (i >= 0 && skipped(input.charAt(i))) {
+					i--;
+				}
+				if (i < 0 || input.charAt(i) != suffix.charAt(j)) {
+					break;
+				}
+			}
+			if (j < 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean skipped(char c) {
+		return c >= symbolIndex.length || symbolIndex[c] < 0;
+	}
+
+	public String toString() {
+		StringBuilder s = new StringBuilder();
+		if (prefixes != null) {
+			s.append("prefix ").append(Arrays.toString(prefixes));
+		}
+		if (suffixes != null) {
+			s.append(s.length() > 0 ? ", " : "").append("suffix ")
+					.append(Arrays.toString(suffixes));
+		}
+		if (factors != null) {
+			s.append(s.length() > 0 ? ", " : "").append("contains ")
+					.append(Arrays.toString(factors));
+		}
+		return s.toString();
+	}
+
+	/*
+	 * Literals of a node of a syntax tree: the exact set of strings it
+	 * matches (null if unknown or too large), and otherwise sets of strings
+	 * every match starts with, ends with, or contains one of (null when
+	 * unknown; each factor set is required)
+	 */
+	static class Literals {
+		TreeSet<String> exact;
+		TreeSet<String> prefixes;
+		TreeSet<String> suffixes;
+		ArrayList<TreeSet<String>> factors;
+
+		Literals(TreeSet<String> exact) {
+			this.exact = exact;
+			factors = new ArrayList<TreeSet<String>>();
+			if (exact != null) {
+				prefixes = known(exact);
+				suffixes = known(exact);
+				if (prefixes != null) {
+					factors.add(prefixes);
+				}
+			}
+		}
+	}
+}
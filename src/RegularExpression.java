@@ -1,10 +1,31 @@
 /*
  * Object representation of a Regular Expression (RE)
  */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.TreeSet;
+
 class RegularExpression {
 	public ArrayList<Character> alphabet;
 	public String expression;
 
+	// symbol classes, built by buildSymbolClasses(): two alphabet characters
+	// are in the same class when the expression cannot tell them apart, that
+	// is when every symbol or union of symbols of the expression (such as
+	// "(a|b)") holds either both or neither of them. The characters the
+	// expression never uses (which all lead to the same dead state) share one
+	// class. symbolIndex maps a character to its class (-1 for characters
+	// outside of the alphabet), and classes holds the first character of each
+	// class, which labels the class in the automata
+	public int[] symbolIndex;
+	public ArrayList<Character> classes;
+
+	// operators and the empty string 'e' never label a transition
+	private static final String NOT_SYMBOLS = "()*|@ e";
+
 	public RegularExpression() {
 		this.alphabet = null;
 		this.expression = null;
@@ -14,4 +35,171 @@ class RegularExpression {
 		this.alphabet = alphabet;
 		this.expression = expression;
 	}
-}
\ No newline at end of file
+
+	/*
+	 * Purpose: computes the symbol classes of the alphabet from the symbols
+	 * and unions of symbols of the expression
+	 */
+	public void buildSymbolClasses() {
+		buildSymbolClasses(new String[] { expression });
+	}
+
+	/*
+	 * Purpose: computes the symbol classes of the alphabet shared by several
+	 * expressions, so that the automata of all of them read the same symbols
+	 * 
+	 * @param expressions the text representations of the expressions
+	 */
+	public void buildSymbolClasses(String[] expressions) {
+		int maxChar = -1;
+		for (Character c : alphabet) {
+			maxChar = Math.max(maxChar, c.charValue());
+		}
+
+		// the sets of characters matched as one symbol: a union of symbols
+		// in parentheses (or making up a whole expression), or else a single
+		// symbol, as strings of their sorted characters
+		LinkedHashSet<String> sets = new LinkedHashSet<String>();
+		for (String e : expressions) {
+			if (e.indexOf('(') < 0 && e.indexOf(')') < 0
+					&& isUnionOfSymbols(e, 0, e.length(), maxChar)) {
+				sets.add(symbols(e, 0, e.length(), maxChar));
+				continue;
+			}
+			int open = -1, from = 0;
+			for (int i = 0; i < e.length(); i++) {
+				char c = e.charAt(i);
+				if (c == '(') {
+					addEach(e, from, i, maxChar, sets);
+					open = i;
+					from = i + 1;
+				} else if (c == ')') {
+					if (open >= 0
+							&& isUnionOfSymbols(e, open + 1, i, maxChar)) {
+						sets.add(symbols(e, open + 1, i, maxChar));
+					} else {
+						addEach(e, from, i, maxChar, sets);
+					}
+					open = -1;
+					from = i + 1;
+				}
+			}
+			addEach(e, from, e.length(), maxChar, sets);
+		}
+
+		// the alphabet starts as one block, and each set splits every block
+		// it meets in two: the characters in the set, and those not in it
+		int[] block = new int[maxChar + 1];
+		int blocks = 1;
+		HashMap<Integer, Integer> target = new HashMap<Integer, Integer>();
+		for (String set : sets) {
+			target.clear();
+			for (int i = 0; i < set.length(); i++) {
+				char c = set.charAt(i);
+				Integer to = target.get(Integer.valueOf(block[c]));
+				if (to == null) {
+					to = Integer.valueOf(blocks++);
+					target.put(Integer.valueOf(block[c]), to);
+				}
+				block[c] = to.intValue();
+			}
+		}
+
+		symbolIndex = new int[maxChar + 1];
+		Arrays.fill(symbolIndex, -1);
+		int[] classOf = new int[blocks];
+		Arrays.fill(classOf, -1);
+		classes = new ArrayList<Character>();
+		for (Character c : alphabet) {
+			char symbol = c.charValue();
+			if (classOf[block[symbol]] < 0) {
+				classOf[block[symbol]] = classes.size();
+				classes.add(c);
+			}
+			symbolIndex[symbol] = classOf[block[symbol]];
+		}
+	}
+
+	private static boolean isSymbol(char c, int maxChar) {
+		return c <= maxChar && NOT_SYMBOLS.indexOf(c) < 0;
+	}
+
+	/*
+	 * Purpose: determines if part of an expression is a union of symbols
+	 * only, such as "a|b|c"
+	 * 
+	 * @param e the text of the expression
+	 * 
+	 * @param from the offset of the first character of the part
+	 * 
+	 * @param to the offset just past the part
+	 * 
+	 * @param maxChar the largest character of the alphabet
+	 * 
+	 * @return true if the part holds symbols separated by '|', and spaces
+	 */
+	private static boolean isUnionOfSymbols(String e, int from, int to,
+			int maxChar) {
+		boolean symbol = false;
+		int unions = 0;
+		for (int i = from; i < to; i++) {
+			char c = e.charAt(i);
+			if (c == ' ') {
+				continue;
+			} else if (c == '|' && symbol) {
+				symbol = false;
+				unions++;
+			} else if (!symbol && isSymbol(c, maxChar)) {
+				symbol = true;
+			} else {
+				return false;
+			}
+		}
+		return symbol && unions > 0;
+	}
+
+	/*
+	 * Purpose: collects the symbols of part of an expression
+	 * 
+	 * @return the symbols, sorted and without duplicates
+	 */
+	private static String symbols(String e, int from, int to, int maxChar) {
+		TreeSet<Character> symbols = new TreeSet<Character>();
+		for (int i = from; i < to; i++) {
+			if (isSymbol(e.charAt(i), maxChar)) {
+				symbols.add(Character.valueOf(e.charAt(i)));
+			}
+		}
+		StringBuilder sb = new StringBuilder();
+		for (Character c : symbols) {
+			sb.append(c.charValue());
+		}
+		return sb.toString();
+	}
+
+	/*
+	 * Purpose: adds each symbol of part of an expression as a set of its own
+	 */
+	private static void addEach(String e, int from, int to, int maxChar,
+			LinkedHashSet<String> sets) {
+		for (int i = from; i < to; i++) {
+			if (isSymbol(e.charAt(i), maxChar)) {
+				sets.add(String.valueOf(e.charAt(i)));
+			}
+		}
+	}
+
+	/*
+	 * Purpose: determines if a character belongs to the alphabet
+	 * 
+	 * @param c the character
+	 * 
+	 * @return true if c is in the alphabet
+	 */
+	public boolean inAlphabet(char c) {
+		if (symbolIndex == null) {
+			buildSymbolClasses();
+		}
+		return c < symbolIndex.length && symbolIndex[c] >= 0;
+	}
+}
@@ -10,83 +10,273 @@
  */
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.Scanner;
-import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class RegularExpressionParser {
 
-	/*
-	 * only global: used to track total number of states in NFA during build
-	 * process - is global because build process of NFA is recursive in form and
-	 * requires access to a global shared resource
-	 */
-	private static int numStates;
+	// size in chars of the input and output buffers
+	public static final int BUFFER_SIZE = 1 << 16;
+
+	// size in bytes of each window of a memory mapped input file
+	public static final long MAP_WINDOW = 1L << 28;
 
 	public static void main(String[] args) {
 		String inputFilename = null, outputFilename = null;
-		numStates = 0;
 
-		// acquire input and output file names
-		if (args.length == 0) {
+		// acquire options, and input and output file names
+		Options options = new Options(args);
+		if (!options.valid) {
+			Options.printUsage();
+			System.exit(0);
+		}
+		Metrics.global.detailed = options.metricsFile != null || options.jmx;
+		if (options.jmx) {
+			Metrics.global.register();
+		}
+		if (options.daemonPort > 0) {
+			try {
+				new MatchDaemon(options.daemonPort, options.cacheEntries,
+						options.cacheMegabytes * (1L << 20), options.minimize)
+						.run();
+			} catch (IOException e) {
+				System.err.println("Could not listen on port "
+						+ options.daemonPort + ": " + e.getMessage());
+				System.exit(1);
+			}
+			return;
+		} else if (options.filenames.isEmpty()) {
 			Scanner in = new Scanner(System.in);
 			System.out.println("Please enter the name of the input file: ");
 			inputFilename = in.next();
 			System.out.println("Please enter the name of the output file: ");
 			outputFilename = in.next();
 			in.close();
-		} else if (args.length == 2) {
-			inputFilename = args[0];
-			outputFilename = args[1];
+		} else {
+			inputFilename = options.filenames.get(0);
+			outputFilename = options.filenames.get(1);
+		}
 
-			// check proper program usage without any errors
-			// if errors occur, enter else, print, and exit program
+		// conversion begins; the input file is opened once, and the test
+		// cases are read from where the expression left off
+		BufferedReader br = null;
+		try {
+			br = new BufferedReader(new FileReader(inputFilename), BUFFER_SIZE);
+		} catch (IOException e) {
+			System.err.println(inputFilename + " not found");
+			System.exit(1);
+		}
+		RegularExpression re = readInput(br, inputFilename);
+		if (options.patterns > 0) {
+			PatternSet set = buildPatternSet(re, br, inputFilename,
+					options.patterns, outputFilename);
+			computeSet(set, br, outputFilename, options.flushInterval);
+			if (options.metricsFile != null) {
+				Metrics.global.dump(options.metricsFile);
+			}
+			return;
+		}
+		Matcher matcher = buildMatcher(re, options, outputFilename);
+		if (matcher instanceof DFA) {
+			DFA dfa = (DFA) matcher;
+			if (dfa.dead[dfa.startState]) {
+				System.out
+						.println("The language is empty: every test case is rejected without being read");
+			} else if (dfa.universal[dfa.startState]) {
+				System.out
+						.println("The language holds every string: every test case is accepted without being read");
+			}
+		}
+		if (options.engine.equals("bytecode") && matcher instanceof DFA) {
+			Matcher compiled = DFACompiler.compile((DFA) matcher);
+			if (compiled != null) {
+				System.out.println("DFA compiled to bytecode: "
+						+ ((DFA) matcher).numStates + " states");
+				matcher = compiled;
+			} else {
+				System.out
+						.println("DFA too large to compile to bytecode, or classes cannot be defined at runtime: falling back to the dfa engine");
+			}
+		}
+		if (options.prefilter && !options.search && !options.mmap) {
+			matcher = Prefilter.wrap(matcher, re);
+			if (matcher instanceof Prefilter) {
+				System.out.println("Prefilter: " + matcher);
+			}
+		}
+		if (options.search) {
+			search((DFA) matcher, br, outputFilename, options.lazyCacheStates);
+		} else if (options.mmap) {
+			try {
+				br.close();
+			} catch (IOException e) {
+			}
+			computeMapped((DFA) matcher, inputFilename, outputFilename,
+					options.flushInterval);
+		} else if (options.threads > 1) {
+			computeParallel(matcher, br, outputFilename, options);
 		} else {
-			System.out.println("Incorrect program usage.");
-			System.out
-					.println("Usage:\n\tjava DFASimulator.java inputFilename outputFilename");
-			System.out.println("\t\t\tOR");
-			System.out.println("\tjava DFASimulator.java");
+			compute(matcher, br, outputFilename, options.flushInterval);
+		}
+		if (options.metricsFile != null) {
+			Metrics.global.dump(options.metricsFile);
+		}
+	}
+
+	/*
+	 * Purpose: converts a Regular Expression into the matching engine selected
+	 * by the options - a DFA is looked up in the on-disk cache first, and
+	 * stored there once built
+	 * 
+	 * @param re the Object representation of the Regular Expression
+	 * 
+	 * @param options the engine and cache to use
+	 * 
+	 * @param outputFilename the name of the output file, in case the program
+	 * determines an invalid expression and needs to abort the conversion
+	 * 
+	 * @return the matching engine
+	 */
+	public static Matcher buildMatcher(RegularExpression re, Options options,
+			String outputFilename) {
+		StringBuilder alphabet = new StringBuilder();
+		for (Character c : re.alphabet) {
+			alphabet.append(c.charValue());
+		}
+		String expression = re.expression;
+		File cacheFile = null;
+		if ((options.engine.equals("dfa") || options.engine.equals("bytecode"))
+				&& options.dfaCache != null) {
+			cacheFile = DFAFile.cacheFile(options.dfaCache,
+					alphabet.toString(), expression, options.minimize);
+			try {
+				DFA dfa = DFAFile.load(cacheFile, alphabet.toString(),
+						expression);
+				if (dfa != null) {
+					System.out.println("\nSUCCESS: DFA loaded from cache "
+							+ cacheFile
+							+ ". Please refer to output file for results.");
+					return dfa;
+				}
+			} catch (IOException e) {
+				System.err.println("Could not read cached DFA " + cacheFile
+						+ ": " + e.getMessage());
+			}
+		}
+
+		if (options.engine.equals("glushkov")) {
+			GlushkovMatcher glushkov = buildGlushkov(re, outputFilename);
+			if (glushkov != null) {
+				System.out
+						.println("\nSUCCESS: RE >> position automaton of "
+								+ glushkov.numPositions
+								+ " positions, no NFA or DFA built. Please refer to output file for results.");
+				return glushkov;
+			}
+			System.out.println("More than " + GlushkovMatcher.MAX_POSITIONS
+					+ " positions, falling back to the dfa engine");
+		}
+
+		NFA nfa = null;
+		DFA dfa = null;
+		InvalidExpressionException invalid = null;
+		try {
+			if (options.derivatives) {
+				dfa = derivativesDFA(re);
+				if (dfa == null) {
+					System.out
+							.println("Expression nested too deeply for derivatives, falling back to the NFA");
+				}
+			}
+			if (dfa == null) {
+				nfa = RE2NFA(re);
+			}
+		} catch (InvalidExpressionException e) {
+			invalid = e;
+		}
+		System.out.println("Input converted to: "
+				+ explicitConcatenation(re).replace("@", " o "));
+		if (invalid != null) {
+			System.out.println("\nFAILURE: Invalid expression ("
+					+ invalid.getMessage() + ")");
+			writeResult(false, outputFilename, 0, true);
 			System.exit(0);
 		}
 
-		// conversion begins
-		RegularExpression re = readInput(inputFilename);
-		NFA nfa = RE2NFA(re, outputFilename);
-		DFA dfa = NFA2DFA(nfa);
-		compute(dfa, inputFilename, outputFilename);
+		if (dfa != null) {
+			System.out
+					.println("\nSUCCESS: RE >> DFA conversion by derivatives completed successfully. Please refer to output file for results.");
+		} else if (options.engine.equals("lazy")) {
+			System.out
+					.println("\nSUCCESS: RE >> NFA conversion completed successfully, DFA states will be built on demand. Please refer to output file for results.");
+			return new LazyDFA(nfa, options.lazyCacheStates);
+		} else if (options.engine.equals("nfa")) {
+			System.out
+					.println("\nSUCCESS: RE >> NFA conversion completed successfully, NFA will be simulated directly. Please refer to output file for results.");
+			return new BitNFA(nfa);
+		} else {
+			dfa = NFA2DFA(nfa);
+			System.out
+					.println("\nSUCCESS: RE >> NFA >> DFA conversion completed successfully. Please refer to output file for results.");
+		}
+		if (options.minimize) {
+			DFA minimal = minimize(dfa);
+			System.out.println("DFA minimized: " + dfa.numStates
+					+ " states >> " + minimal.numStates + " states");
+			dfa = minimal;
+		}
+		if (cacheFile != null) {
+			try {
+				DFAFile.write(dfa, alphabet.toString(), expression, cacheFile);
+			} catch (IOException e) {
+				System.err.println("Could not write cached DFA " + cacheFile
+						+ ": " + e.getMessage());
+			}
+		}
+		return dfa;
 	}
 
 	/*
-	 * Purpose: reads in the RE input from a given file
+	 * Purpose: reads in the RE input from a given file, leaving the reader
+	 * positioned at the first test case
+	 * 
+	 * @param br the reader of the input file
 	 * 
 	 * @param filename the name of the input file
 	 * 
 	 * @return a RegularExpression representing the desired Regular Expression
 	 */
-	public static RegularExpression readInput(String filename) {
-		BufferedReader br = null;
-
+	public static RegularExpression readInput(BufferedReader br,
+			String filename) {
 		ArrayList<Character> alphabet = new ArrayList<Character>();
 		String expression = null;
 		String input = null;
 
 		try {
-			br = new BufferedReader(new FileReader(filename));
 			input = br.readLine();
 
 			for (int i = 0; i < input.length(); i++) {
-				alphabet.add(new Character(input.charAt(i)));
+				alphabet.add(Character.valueOf(input.charAt(i)));
 			}
 
 			expression = br.readLine();
-
-			br.close();
 		} catch (IOException e) {
 			System.err.println(filename + " not found");
 			System.exit(1);
@@ -96,6 +286,89 @@ public class RegularExpressionParser {
 		return new RegularExpression(alphabet, expression);
 	}
 
+	/*
+	 * Purpose: converts a Regular Expression into its bit-parallel Glushkov
+	 * position automaton, exiting if the expression is invalid
+	 * 
+	 * @param re the Object representation of the Regular Expression
+	 * 
+	 * @param outputFilename the name of the output file
+	 * 
+	 * @return the matcher, or null if the expression has too many positions
+	 */
+	public static GlushkovMatcher buildGlushkov(RegularExpression re,
+			String outputFilename) {
+		Metrics metrics = Metrics.global;
+		long start = System.nanoTime();
+		PhaseEvent event = metrics.beginPhase();
+		SyntaxTree tree = null;
+		InvalidExpressionException invalid = null;
+		try {
+			tree = buildSyntaxTree(re);
+		} catch (InvalidExpressionException e) {
+			invalid = e;
+		}
+		metrics.endPhase(Metrics.PARSE, start, event, re.expression.length());
+		if (invalid != null) {
+			System.out.println("Input converted to: "
+					+ explicitConcatenation(re).replace("@", " o "));
+			System.out.println("\nFAILURE: Invalid expression ("
+					+ invalid.getMessage() + ")");
+			writeResult(false, outputFilename, 0, true);
+			System.exit(0);
+		}
+
+		start = System.nanoTime();
+		event = metrics.beginPhase();
+		GlushkovMatcher glushkov = GlushkovMatcher.build(tree, re);
+		if (glushkov != null) {
+			System.out.println("Input converted to: "
+					+ explicitConcatenation(re).replace("@", " o "));
+			metrics.nfaStates.set(glushkov.numPositions + 1);
+			metrics.nfaTransitions.set(glushkov.numTransitions());
+			metrics.endPhase(Metrics.NFA_BUILD, start, event,
+					glushkov.numPositions + 1);
+		}
+		return glushkov;
+	}
+
+	/*
+	 * Purpose: compiles a Regular Expression all the way to a DFA, without
+	 * printing anything - compilations share no state, so this is safe to call
+	 * from several threads at once
+	 * 
+	 * @param re the Object representation of the Regular Expression
+	 * 
+	 * @param minimize whether the DFA is minimized
+	 * 
+	 * @return the compiled DFA
+	 * 
+	 * @throws InvalidExpressionException if the expression is not valid
+	 */
+	public static DFA compileDFA(RegularExpression re, boolean minimize)
+			throws InvalidExpressionException {
+		DFA dfa = NFA2DFA(RE2NFA(re));
+		return minimize ? minimize(dfa) : dfa;
+	}
+
+	/*
+	 * Purpose: minimizes a DFA, recording the time taken and the size of the
+	 * minimal DFA in the metrics
+	 * 
+	 * @param dfa the DFA to be minimized
+	 * 
+	 * @return the minimal DFA
+	 */
+	public static DFA minimize(DFA dfa) {
+		long start = System.nanoTime();
+		PhaseEvent event = Metrics.global.beginPhase();
+		DFA minimal = dfa.minimize();
+		Metrics.global.minimalDfaStates.set(minimal.numStates);
+		Metrics.global.endPhase(Metrics.MINIMIZE, start, event,
+				minimal.numStates);
+		return minimal;
+	}
+
 	/*
 	 * Purpose: determines if the the transition from one character to another
 	 * in the string representation of the Regular Expression is a valid implied
@@ -110,8 +383,8 @@ public class RegularExpressionParser {
 	public static boolean isValidConcat(char current, char previous,
 			RegularExpression re) {
 		boolean toReturn = false;
-		Character Current = new Character(current);
-		Character Previous = new Character(previous);
+		boolean currentSymbol = re.inAlphabet(current);
+		boolean previousSymbol = re.inAlphabet(previous);
 
 		// concatenation is valid if for two elements of the input expression,
 		// such that a --> b, a and b match one of the following cases:
@@ -122,16 +395,15 @@ public class RegularExpressionParser {
 		// ) --> b
 		// * --> (
 
-		if (re.alphabet.contains(Current) && previous == '*') {
+		if (currentSymbol && previous == '*') {
 			toReturn = true;
-		} else if (re.alphabet.contains(Current)
-				&& re.alphabet.contains(Previous)) {
+		} else if (currentSymbol && previousSymbol) {
 			toReturn = true;
 		} else if (current == '(' && previous == ')') {
 			toReturn = true;
-		} else if (current == '(' && re.alphabet.contains(Previous)) {
+		} else if (current == '(' && previousSymbol) {
 			toReturn = true;
-		} else if (re.alphabet.contains(Current) && previous == ')') {
+		} else if (currentSymbol && previous == ')') {
 			toReturn = true;
 		} else if (current == '(' && previous == '*') {
 			toReturn = true;
@@ -142,413 +414,440 @@ public class RegularExpressionParser {
 
 	/*
 	 * Purpose: builds an abstract syntax tree based on a given Regular
-	 * Expression
+	 * Expression, in a single pass - the expression is read as if it were
+	 * parenthesized, spaces are skipped, and each implied concatenation is
+	 * inserted as an explicit '@' operator as soon as it is seen (see
+	 * isValidConcat). Operators wait on a stack until their operands are
+	 * complete, as follows: '*' applies to the operand before it, an '@' or
+	 * '|' first completes a pending '*' or '@', and ')' completes everything
+	 * back to its '('.
 	 * 
 	 * @param re the Object representation of the Regular Expression
 	 * 
-	 * @param outputFileName the name of the output results file, in case the
-	 * program determines an invalid expression and needs to abort the current
-	 * conversion
+	 * @return the abstract syntax tree
 	 * 
-	 * @return TreeNode the root of the abstract syntax tree
+	 * @throws InvalidExpressionException if the expression is not valid, with
+	 * the position in the expression at which it was found to be invalid
 	 */
-	public static TreeNode buildSyntaxTree(RegularExpression re,
-			String outputFilename) {
-		Stack<Character> operators = new Stack<Character>();
-		Stack<TreeNode> operands = new Stack<TreeNode>();
-		char top, current;
-		TreeNode a, b, newTreeNode;
-		int parensCount = 0;
-		boolean validOperator = true;
-
-		String toPrint = re.expression.replace("@", " o ");
-		System.out.println("Input converted to: " + toPrint);
+	public static SyntaxTree buildSyntaxTree(RegularExpression re)
+			throws InvalidExpressionException {
+		String expression = re.expression;
+		int length = expression.length();
+		if (re.symbolIndex == null) {
+			// symbol classes already given (such as those shared by a set
+			// of expressions) are kept
+			re.buildSymbolClasses();
+		}
 
-		// special characters: ( ) * | @ e
-		for (int i = 0; i < re.expression.length(); i++) {
-			current = re.expression.charAt(i);
+		// every character yields at most two tokens, plus the parentheses
+		SyntaxTree tree = new SyntaxTree(length + 1);
+		char[] operators = new char[2 * length + 2];
+		int[] positions = new int[2 * length + 2];
+		int[] operands = new int[length + 1];
+		int numOperators = 0, numOperands = 0, parensCount = 0;
+		boolean validOperator = true;
+		char previous = '\0';
+
+		// position -1 is the opening parenthesis around the expression, and
+		// position length is the closing one
+		for (int i = -1; i <= length; i++) {
+			char current = (i < 0) ? '(' : (i == length) ? ')' : expression
+					.charAt(i);
+			if (current == ' ') {
+				continue;
+			}
+			boolean concat = i >= 0 && i < length
+					&& isValidConcat(current, previous, re);
+			if (i >= 0 && i < length) {
+				previous = current;
+			}
 
-			// switch case to handle each of our 'special' characters
-			switch (current) {
-			case '(':
-				operators.push(new Character(current));
-				parensCount++;
-				validOperator = false;
-				break;
-			case ')':
-				if (parensCount <= 0) {
-					writeResult(false, outputFilename, 0, true);
-					System.exit(0);
-				}
-				parensCount--;
-				top = operators.pop();
-				while (top != '(' && !operators.isEmpty()) {
-					switch (top) {
-					case '*':
-						a = operands.pop();
-						newTreeNode = new TreeNode('*');
-						newTreeNode.addLeftChild(a);
-						operands.push(newTreeNode);
-						break;
-					case '@':
-						a = operands.pop();
-						b = operands.pop();
-						newTreeNode = new TreeNode('@');
-						newTreeNode.addLeftChild(a);
-						newTreeNode.addRightChild(b);
-						operands.push(newTreeNode);
-						break;
-					case '|':
-						a = operands.pop();
-						b = operands.pop();
-						newTreeNode = new TreeNode('|');
-						newTreeNode.addLeftChild(a);
-						newTreeNode.addRightChild(b);
-						operands.push(newTreeNode);
-						break;
-					default:
-						System.out.println("\nFAILURE: Invalid expression");
-						writeResult(false, outputFilename, 0, true);
-						System.exit(0);
+			for (int pass = concat ? 0 : 1; pass < 2; pass++) {
+				char token = (pass == 0) ? '@' : current;
+				char top = (numOperators > 0) ? operators[numOperators - 1]
+						: '\0';
+
+				switch (token) {
+				case '(':
+					operators[numOperators] = token;
+					positions[numOperators++] = i;
+					parensCount++;
+					validOperator = false;
+					break;
+				case ')':
+					if (parensCount <= 0 || (parensCount == 1 && i < length)) {
+						throw new InvalidExpressionException("unmatched ')' at "
+								+ i);
 					}
-					top = operators.pop();
-				}
-				break;
-			case '*':
-				operators.push(new Character(current));
-				break;
-			case '|':
-				if (!validOperator) {
-					System.out.println("\nFAILURE: Invalid Expression");
-					writeResult(false, outputFilename, 0, true);
-					System.exit(0);
-				}
-				validOperator = false;
-				top = operators.peek();
-				if (top == '*') {
-					top = operators.pop();
-					a = operands.pop();
-					newTreeNode = new TreeNode('*');
-					newTreeNode.addLeftChild(a);
-					operands.push(newTreeNode);
-					operators.push(new Character(current));
-				} else if (top == '@') {
-					top = operators.pop();
-					a = operands.pop();
-					b = operands.pop();
-					newTreeNode = new TreeNode('@');
-					newTreeNode.addLeftChild(a);
-					newTreeNode.addRightChild(b);
-					operands.push(newTreeNode);
-					operators.push(new Character(current));
-				} else {
-					operators.push(new Character(current));
-				}
-				break;
-			case '@':
-				validOperator = false;
-				top = operators.peek();
-				if (top == '*') {
-					top = operators.pop();
-					a = operands.pop();
-					newTreeNode = new TreeNode('*');
-					newTreeNode.addLeftChild(a);
-					operands.push(newTreeNode);
-					operators.push(new Character(current));
-				} else if (top == '@') {
-					a = operands.pop();
-					b = operands.pop();
-					newTreeNode = new TreeNode('@');
-					newTreeNode.addLeftChild(a);
-					newTreeNode.addRightChild(b);
-					operands.push(newTreeNode);
-				} else {
-					operators.push(new Character(current));
+					parensCount--;
+					while (operators[numOperators - 1] != '(') {
+						numOperands = reduce(tree, operands, numOperands,
+								operators[numOperators - 1],
+								positions[numOperators - 1]);
+						numOperators--;
+					}
+					numOperators--;
+					if (i == length && positions[numOperators] >= 0) {
+						throw new InvalidExpressionException("unmatched '(' at "
+								+ positions[numOperators]);
+					}
+					break;
+				case '*':
+					operators[numOperators] = token;
+					positions[numOperators++] = i;
+					break;
+				case '|':
+				case '@':
+					if (token == '|' && !validOperator) {
+						throw new InvalidExpressionException("missing operand of '|' at "
+								+ i);
+					}
+					validOperator = false;
+					if (top == '*' || (top == '@' && token == '|')) {
+						// complete the pending operator, then wait for the
+						// right operand of this one
+						numOperands = reduce(tree, operands, numOperands, top,
+								positions[numOperators - 1]);
+						operators[numOperators - 1] = token;
+						positions[numOperators - 1] = i;
+					} else if (top == '@') {
+						// the pending concatenation is completed, and stays
+						// on the stack to stand for this one
+						numOperands = reduce(tree, operands, numOperands, top,
+								positions[numOperators - 1]);
+						positions[numOperators - 1] = i;
+					} else {
+						operators[numOperators] = token;
+						positions[numOperators++] = i;
+					}
+					break;
+				default:
+					// 'e' and the characters of the expression
+					validOperator = true;
+					operands[numOperands++] = tree.add(token, -1, -1);
 				}
-				break;
-			case 'e':
-				validOperator = true;
-				operands.push(new TreeNode(new Character(current)));
-				break;
-			case ' ':
-				break;
-			default:
-				validOperator = true;
-				operands.push(new TreeNode(new Character(current)));
 			}
 		}
 
-		if (!operators.isEmpty()) {
-			System.out.println("\nFAILURE: Invalid expression");
-			writeResult(false, outputFilename, 0, true);
-			System.exit(0);
+		if (numOperators > 0) {
+			throw new InvalidExpressionException("unmatched '(' at "
+					+ positions[numOperators - 1]);
+		} else if (numOperands == 0) {
+			throw new InvalidExpressionException("empty expression");
 		}
 
-		return (operands.pop());
+		tree.root = operands[numOperands - 1];
+		return tree;
 	}
 
 	/*
-	 * Purpose: converts a Regular Expression to a Non-deterministic Finite
-	 * Automaton (NFA)
+	 * Purpose: applies an operator to the operands on top of the operand
+	 * stack, replacing them with the new node of the syntax tree
 	 * 
-	 * @param re the Object representation of the Regular Expression
+	 * @param tree the syntax tree being built
 	 * 
-	 * @param outputFilename the name of the output file
+	 * @param operands the operand stack, holding node indices
 	 * 
-	 * @return the converted NFA
+	 * @param numOperands the number of operands on the stack
+	 * 
+	 * @param operator the operator ('*', '@' or '|')
+	 * 
+	 * @param position the position of the operator in the expression
+	 * 
+	 * @return the number of operands left on the stack
+	 * 
+	 * @throws InvalidExpressionException if the operator is missing an operand
+	 */
+	private static int reduce(SyntaxTree tree, int[] operands,
+			int numOperands, char operator, int position)
+			throws InvalidExpressionException {
+		if (numOperands < ((operator == '*') ? 1 : 2)) {
+			throw new InvalidExpressionException("missing operand of '"
+					+ operator + "' at " + position);
+		}
+		if (operator == '*') {
+			operands[numOperands - 1] = tree.add(operator,
+					operands[numOperands - 1], -1);
+			return numOperands;
+		}
+		int a = operands[--numOperands];
+		operands[numOperands - 1] = tree.add(operator, a,
+				operands[numOperands - 1]);
+		return numOperands;
+	}
+
+	/*
+	 * Purpose: rewrites a Regular Expression such that concatenations are
+	 * explicit ('@'), not implicit, and the whole expression is parenthesized
+	 * - this is the form the syntax tree is built from, and is only needed
+	 * for display
+	 * 
+	 * @param re the Object representation of the Regular Expression
+	 * 
+	 * @return the rewritten expression
 	 */
-	public static NFA RE2NFA(RegularExpression re, String outputFilename) {
-		// first step is to redefine expression such that concatenations are
-		// explicit, not implicit
-		re.expression = re.expression.replace(" ", "");
-		String newExpression = "(";
+	public static String explicitConcatenation(RegularExpression re) {
+		StringBuilder newExpression = new StringBuilder(
+				2 * re.expression.length() + 2).append('(');
 		char current, previous = '\0';
 		for (int i = 0; i < re.expression.length(); i++) {
 			current = re.expression.charAt(i);
+			if (current == ' ') {
+				continue;
+			}
 			if (isValidConcat(current, previous, re)) {
-				newExpression += '@';
+				newExpression.append('@');
 			}
-			newExpression += current;
+			newExpression.append(current);
 			previous = current;
 		}
-		newExpression += ")";
-		re.expression = newExpression;
+		return newExpression.append(')').toString();
+	}
 
-		// next step is to build a syntax tree
-		TreeNode syntaxTree = buildSyntaxTree(re, outputFilename);
+	/*
+	 * Purpose: converts a Regular Expression straight into a DFA with
+	 * Brzozowski derivatives (see Derivatives), skipping the NFA
+	 * 
+	 * @param re the Object representation of the Regular Expression
+	 * 
+	 * @return the DFA, or null if the expression is nested too deeply for
+	 * the recursive derivatives
+	 * 
+	 * @throws InvalidExpressionException if the expression is not valid
+	 */
+	public static DFA derivativesDFA(RegularExpression re)
+			throws InvalidExpressionException {
+		Metrics metrics = Metrics.global;
+		long start = System.nanoTime();
+		PhaseEvent event = metrics.beginPhase();
+		SyntaxTree syntaxTree = buildSyntaxTree(re);
+		metrics.endPhase(Metrics.PARSE, start, event, re.expression.length());
+
+		start = System.nanoTime();
+		event = metrics.beginPhase();
+		DFA dfa;
+		try {
+			dfa = Derivatives.build(syntaxTree, re);
+		} catch (StackOverflowError e) {
+			return null;
+		}
+		metrics.dfaStates.set(dfa.numStates);
+		metrics.dfaTransitions.set((long) dfa.numStates * dfa.alphabet.size());
+		metrics.endPhase(Metrics.DETERMINIZE, start, event, dfa.numStates);
+		return dfa;
+	}
 
-		// final step is to build a DFA from our syntax tree
-		// we start with a depth first search, and build up accordingly
-		NFA nfa = traverse(syntaxTree, re.alphabet);
+	/*
+	 * Purpose: converts a Regular Expression to a Non-deterministic Finite
+	 * Automaton (NFA)
+	 * 
+	 * @param re the Object representation of the Regular Expression
+	 * 
+	 * @return the converted NFA
+	 * 
+	 * @throws InvalidExpressionException if the expression is not valid
+	 */
+	public static NFA RE2NFA(RegularExpression re)
+			throws InvalidExpressionException {
+		Metrics metrics = Metrics.global;
+		long start = System.nanoTime();
+		PhaseEvent event = metrics.beginPhase();
+
+		// first step is to build a syntax tree, making concatenations
+		// explicit along the way
+		SyntaxTree syntaxTree = buildSyntaxTree(re);
+		metrics.endPhase(Metrics.PARSE, start, event, re.expression.length());
+
+		// final step is to build an NFA from our syntax tree - it is labelled
+		// by symbol class, so the DFA table has a column per class rather
+		// than per alphabet character
+		start = System.nanoTime();
+		event = metrics.beginPhase();
+		NFA nfa = traverse(syntaxTree, re);
+		metrics.nfaStates.set(nfa.numStates);
+		metrics.nfaTransitions.set(nfa.numEdges);
+		metrics.endPhase(Metrics.NFA_BUILD, start, event, nfa.numStates);
 
 		return nfa;
 	}
 
 	/*
-	 * Purpose: builds an NFA from the abstract syntax tree
+	 * Purpose: builds an NFA from the abstract syntax tree, using Thompson's
+	 * construction - the nodes are visited in their (post order) array order,
+	 * and each node appends its states and edges to the NFA once, recording a
+	 * fragment (a start and an end state) for its parent to connect
 	 * 
-	 * @param tn the current node of the tree with which the current method call
-	 * is working
+	 * @param tree the abstract syntax tree
 	 * 
-	 * @param alphabet the alphabet of the Regular Expression
+	 * @param re the Regular Expression, with its symbol classes built
 	 * 
-	 * @return an NFA representing the contents of tn (recursive)
+	 * @return an NFA representing the contents of the tree
 	 */
-	public static NFA traverse(TreeNode tn, ArrayList<Character> alphabet) {
-		NFA toReturn = null;
-
-		// base case - check if node is leaf
-		if (tn.leftChild == null && tn.rightChild == null) {
-			if (tn.data == 'e') {
-				toReturn = tn.buildEpsilonNFA(numStates, alphabet);
-				numStates++;
+	public static NFA traverse(SyntaxTree tree, RegularExpression re) {
+		NFA nfa = new NFA(re.classes, re.symbolIndex);
+		int[] fragmentStart = new int[tree.size];
+		int[] fragmentEnd = new int[tree.size];
+
+		for (int node = 0; node < tree.size; node++) {
+			char c = tree.data[node];
+			int left = tree.left[node], right = tree.right[node];
+			int start, end;
+
+			if (tree.isLeaf(node)) {
+				start = nfa.addState();
+				if (c == 'e') {
+					end = start;
+				} else {
+					// a character outside of the alphabet is never read, so
+					// its end state is unreachable
+					end = nfa.addState();
+					if (re.inAlphabet(c)) {
+						nfa.addEdge(start, re.symbolIndex[c], end);
+					}
+				}
+			} else if (c == '*') {
+				start = end = nfa.addState();
+				nfa.addEdge(start, NFA.EPSILON, fragmentStart[left]);
+				nfa.addEdge(fragmentEnd[left], NFA.EPSILON, start);
+			} else if (c == '@') {
+				// the right child holds the first operand
+				nfa.addEdge(fragmentEnd[right], NFA.EPSILON,
+						fragmentStart[left]);
+				start = fragmentStart[right];
+				end = fragmentEnd[left];
 			} else {
-				toReturn = tn.buildNFA(numStates, alphabet);
-				numStates += 2;
-			}
-		}
-
-		// if not, we need to build either concat, union, or star
-		NFA left, right;
-		switch (tn.data) {
-		case '@':
-			left = traverse(tn.leftChild, alphabet);
-			right = traverse(tn.rightChild, alphabet);
-			toReturn = right.concatenate(numStates, left);
-			break;
-		case '|':
-			left = traverse(tn.leftChild, alphabet);
-			right = traverse(tn.rightChild, alphabet);
-			toReturn = left.union(numStates, right);
-			numStates++;
-			break;
-		case '*':
-			left = traverse(tn.leftChild, alphabet);
-			toReturn = left.star(numStates);
-			numStates++;
-			break;
+				start = nfa.addState();
+				end = nfa.addState();
+				nfa.addEdge(start, NFA.EPSILON, fragmentStart[left]);
+				nfa.addEdge(start, NFA.EPSILON, fragmentStart[right]);
+				nfa.addEdge(fragmentEnd[left], NFA.EPSILON, end);
+				nfa.addEdge(fragmentEnd[right], NFA.EPSILON, end);
+			}
+			fragmentStart[node] = start;
+			fragmentEnd[node] = end;
 		}
 
-		return toReturn;
+		nfa.startState = fragmentStart[tree.root];
+		nfa.endStates.add(Integer.valueOf(fragmentEnd[tree.root]));
+		return nfa;
 	}
 
 	/*
-	 * Purpose: builds a DFA from an NFA
+	 * Purpose: builds a DFA from an NFA, using the subset construction - each
+	 * set of NFA states is interned to a DFA state number the first time it is
+	 * reached, and every DFA state is expanded exactly once from a single
+	 * worklist
 	 * 
 	 * @param nfa the NFA to be converted into a DFA
 	 * 
 	 * @return the converted DFA
 	 */
 	public static DFA NFA2DFA(NFA nfa) {
-		Toolbox toolbox = new Toolbox();
-		ArrayList<ArrayList<State>> masterList = new ArrayList<ArrayList<State>>();
-		ArrayList<DFATransition> finalList = new ArrayList<DFATransition>();
-
-		// setting up 2D ArrayList
-		for (int i = 0; i < nfa.alphabet.size(); i++) {
-			masterList.add(new ArrayList<State>());
-			ArrayList<Integer> temp = new ArrayList<Integer>();
-			temp.add(new Integer(nfa.startState));
-			masterList.get(i).add(new State(temp));
-		}
-
-		while (!masterList.get(0).isEmpty()) {
-
-			// compute mapping subset
-			for (int i = 0; i < nfa.alphabet.size(); i++) {
-				ArrayList<Integer> currentSubset = new ArrayList<Integer>();
-				currentSubset = toolbox.cloneInt(masterList.get(i).get(0).Q);
-				currentSubset = buildStartState(currentSubset,
-						nfa.transitionFunction);
-				masterList.get(i).remove(0);
-				ArrayList<Integer> end = toolbox.cloneInt(computeSubset(
-						currentSubset, nfa.transitionFunction,
-						nfa.alphabet.get(i)));
-				DFATransition transition = new DFATransition(currentSubset,
-						nfa.alphabet.get(i).charValue(), end);
-				finalList.add(transition);
-
-				// add to all other queues
-				for (int j = 0; j < nfa.alphabet.size(); j++) {
-					masterList.get(j).add(new State(end));
-				}
-			}
-
-			// check and see if we are done adding states to ArrayList
-			boolean done = false;
-			while (!done) {
-				if (finalList.isEmpty()) {
-					done = true;
-				}
-				for (DFATransition t : finalList) {
-					if (!masterList.get(0).isEmpty()) {
-						if (t.start.equals(masterList.get(0).get(0).Q)) {
-							for (int k = 0; k < nfa.alphabet.size(); k++) {
-								masterList.get(k).remove(0);
-								done = false;
-							}
-						} else {
-							done = true;
-						}
-					} else {
-						done = true;
-					}
-				}
-			}
+		long start = System.nanoTime();
+		PhaseEvent event = Metrics.global.beginPhase();
+		DFA dfa = subsetConstruction(nfa);
+		Metrics.global.dfaStates.set(dfa.numStates);
+		Metrics.global.dfaTransitions.set((long) dfa.numStates
+				* dfa.alphabet.size());
+		Metrics.global.endPhase(Metrics.DETERMINIZE, start, event,
+				dfa.numStates);
+		return dfa;
+	}
 
-		}
+	/*
+	 * Purpose: runs the subset construction of NFA2DFA, without recording
+	 * it in the metrics (for automata built along the way, such as the
+	 * reverse DFA of a search)
+	 * 
+	 * @param nfa the NFA to be converted into a DFA
+	 * 
+	 * @return the converted DFA
+	 */
+	public static DFA subsetConstruction(NFA nfa) {
+		return subsetConstruction(nfa, new ArrayList<BitSet>());
+	}
 
-		// convert to DFA
-		// 1. alphabet
-		ArrayList<Character> alphabet = toolbox.cloneChar(nfa.alphabet);
+	/*
+	 * Purpose: runs the subset construction of NFA2DFA, without recording
+	 * it in the metrics, and gives the set of NFA states of each DFA state
+	 * (so that states can be labelled by more than acceptance, as the states
+	 * of a PatternSet are)
+	 * 
+	 * @param nfa the NFA to be converted into a DFA
+	 * 
+	 * @param worklist an empty list, filled with the set of NFA states of
+	 * each DFA state - that of state q is worklist.get(q - 1)
+	 * 
+	 * @return the converted DFA
+	 */
+	public static DFA subsetConstruction(NFA nfa, ArrayList<BitSet> worklist) {
+		Toolbox toolbox = new Toolbox();
+		HashMap<BitSet, Integer> ids = new HashMap<BitSet, Integer>();
+		ArrayList<Transition> transitionFunction = new ArrayList<Transition>();
+		int alphabetSize = nfa.alphabet.size();
 
-		// 2. number of states
-		int numStates = 0;
-		if (finalList.size() % nfa.alphabet.size() == 0) {
-			System.out
-					.println("\nSUCCESS: RE >> NFA >> DFA conversion completed successfully. Please refer to output file for results.");
-			numStates = finalList.size() / nfa.alphabet.size();
-		} else {
-			System.err
-					.println("INTERNAL ERROR: Incorrect number of states calculated");
-			System.err.println("Please check input file and try again");
-			System.exit(1);
+		if (nfa.closure == null) {
+			nfa.buildIndex();
 		}
 
-		// 3. transition function
-		ArrayList<Transition> transitionFunction = new ArrayList<Transition>();
-		ArrayList<Mapping> f = new ArrayList<Mapping>();
-		for (int k = 0; k < numStates; k++) {
-			ArrayList<Integer> temp = finalList.get(k * alphabet.size()).start;
-			Mapping newMap = new Mapping(k + 1, temp);
-			f.add(newMap);
-		}
-		for (Mapping m : f) {
-			for (Character c : alphabet) {
-				int start = m.dfaIndex;
-				char input = c.charValue();
-				int end = 0;
-				for (DFATransition t : finalList) {
-					if (t.start.equals(m.nfaIndex)) {
-						if (t.input == input) {
-							end = searchMapping(f, t.end);
-							break;
-						}
-					}
-				}
-
-				if (end == 0) {
-					System.err
-							.println("INTERNAL ERROR: Could not compute NFA state --> DFA state mapping.");
-					System.err.println("Please check input file and try again");
-					System.exit(1);
+		// DFA states are numbered from 1, in the order they are discovered
+		BitSet start = new BitSet();
+		start.set(nfa.startState);
+		start = buildStartState(start, nfa);
+		ids.put(start, Integer.valueOf(1));
+		worklist.add(start);
+
+		for (int k = 0; k < worklist.size(); k++) {
+			BitSet currentSubset = worklist.get(k);
+			for (int symbol = 0; symbol < alphabetSize; symbol++) {
+				BitSet end = computeSubset(currentSubset, nfa, symbol);
+				Integer id = ids.get(end);
+				if (id == null) {
+					id = Integer.valueOf(worklist.size() + 1);
+					ids.put(end, id);
+					worklist.add(end);
 				}
-				transitionFunction.add(new Transition(start, input, end));
+				transitionFunction.add(new Transition(k + 1, nfa.alphabet.get(
+						symbol).charValue(), id.intValue()));
 			}
 		}
 
-		// 4. accept states
-		ArrayList<Integer> endStates = new ArrayList<Integer>();
-		ArrayList<ArrayList<Integer>> temp2 = new ArrayList<ArrayList<Integer>>();
+		// accept states are those containing at least one NFA accept state
+		BitSet accepting = new BitSet();
 		for (Integer i : nfa.endStates) {
-			int index = i.intValue();
-			for (int k = 0; k < numStates; k++) {
-				ArrayList<Integer> temp = finalList.get(k * alphabet.size()).start;
-				if (temp.contains(index)) {
-					temp2.add(temp);
-				}
-			}
-			for (ArrayList<Integer> arr : temp2) {
-				Integer toAdd = new Integer(searchMapping(f, arr));
-				if (!endStates.contains(toAdd)) {
-					endStates.add(toAdd);
-				}
+			accepting.set(i.intValue());
+		}
+		ArrayList<Integer> endStates = new ArrayList<Integer>();
+		for (int k = 0; k < worklist.size(); k++) {
+			if (worklist.get(k).intersects(accepting)) {
+				endStates.add(Integer.valueOf(k + 1));
 			}
 		}
 
-		// 5. start state
-		int startState = searchMapping(f, finalList.get(0).start);
-
-		return new DFA(numStates, alphabet, transitionFunction, startState,
-				endStates);
+		return new DFA(worklist.size(), toolbox.cloneChar(nfa.alphabet),
+				nfa.symbolIndex, transitionFunction, 1, endStates);
 	}
 
 	/*
-	 * Purpose: builds a new start state if the start state in the given NFA has
-	 * epsilon transitions exiting itself
+	 * Purpose: computes the epsilon closure of a set of NFA states, which is
+	 * used to build the start state of the DFA
 	 * 
-	 * @param currentSubset the current set of states for which a new start
-	 * state will be determined
+	 * @param currentSubset the current set of states for which the closure will
+	 * be determined
 	 * 
-	 * @param transitionFunction the transition function for the NFA
+	 * @param nfa the NFA, with its adjacency index built
 	 * 
-	 * @return a list of integer indexes that represent the new start state
-	 * (which is a group of states)
+	 * @return the set of states reachable from currentSubset through epsilon
+	 * transitions (including currentSubset itself)
 	 */
-	public static ArrayList<Integer> buildStartState(
-			ArrayList<Integer> currentSubset,
-			ArrayList<Transition> transitionFunction) {
-		ArrayList<Integer> toReturn = new ArrayList<Integer>();
-		ArrayList<Integer> temp = new ArrayList<Integer>();
-
-		for (Integer i : currentSubset) {
-			temp.add(i);
-			toReturn.add(i);
-		}
-
-		while (!temp.isEmpty()) {
-			for (Transition t : transitionFunction) {
-				if (t.input == 'e' && t.start == temp.get(0).intValue()) {
-					if (!toReturn.contains(new Integer(t.end))) {
-						toReturn.add(new Integer(t.end));
-						temp.add(new Integer(t.end));
-					}
-				}
-			}
-			temp.remove(0);
+	public static BitSet buildStartState(BitSet currentSubset, NFA nfa) {
+		BitSet toReturn = new BitSet();
+		Metrics.global.epsilonClosures.increment();
+		for (int i = currentSubset.nextSetBit(0); i >= 0; i = currentSubset
+				.nextSetBit(i + 1)) {
+			toReturn.or(nfa.closure[i]);
 		}
 
-		Collections.sort(toReturn);
 		return toReturn;
 	}
 
@@ -556,112 +855,476 @@ public class RegularExpressionParser {
 	 * Purpose: computes the mapping subset of a set of states in an NFA to
 	 * another set of states in an NFA
 	 * 
-	 * @param currentSubset the set of states from which the transition will
-	 * begin
+	 * @param currentSubset the (epsilon closed) set of states from which the
+	 * transition will begin
 	 * 
-	 * @param transitionFunction the transition function of the NFA
+	 * @param nfa the NFA, with its adjacency index built
 	 * 
-	 * @param alpha the current input
+	 * @param symbol the alphabet index of the current input
 	 * 
-	 * @return a list of integer indexes that represent the mapping subset
+	 * @return the epsilon closure of the states reached on the input
 	 */
-	public static ArrayList<Integer> computeSubset(
-			ArrayList<Integer> currentSubset,
-			ArrayList<Transition> transitionFunction, Character alpha) {
-		Toolbox toolbox = new Toolbox();
-		ArrayList<Integer> toReturn = new ArrayList<Integer>();
-		ArrayList<Integer> temp = new ArrayList<Integer>();
+	public static BitSet computeSubset(BitSet currentSubset, NFA nfa,
+			int symbol) {
+		BitSet toReturn = new BitSet();
+		int k = nfa.alphabet.size();
+		Metrics.global.epsilonClosures.increment();
 
 		/*
 		 * NFA transitions adhere to the following format: (a e*), where a is
 		 * the input alpha and e* represents any finite number of epsilon
 		 * transitions, occurring subsequent to alpha
 		 */
+		for (int i = currentSubset.nextSetBit(0); i >= 0; i = currentSubset
+				.nextSetBit(i + 1)) {
+			int row = i * k + symbol;
+			for (int j = nfa.symbolStart[row]; j < nfa.symbolStart[row + 1]; j++) {
+				toReturn.or(nfa.closure[nfa.symbolEnd[j]]);
+			}
+		}
+
+		return toReturn;
+	}
+
+	/*
+	 * Purpose: computes the result of each test case based on the converted
+	 * DFA (or any other matching engine), streaming the results through a
+	 * single buffered writer
+	 * 
+	 * @param matcher the engine on which the computation will run
+	 * 
+	 * @param br the reader of the input file, positioned at the first test
+	 * case (closed once all test cases are read)
+	 * 
+	 * @param outputFilename the name of the output file
+	 * 
+	 * @param flushInterval the number of results after which the output is
+	 * flushed, or 0 to flush only when the buffer is full
+	 */
+	public static void compute(Matcher matcher, BufferedReader br,
+			String outputFilename, int flushInterval) {
+		BufferedWriter bw;
+		String input;
+		int count = 0, accepted = 0;
+		Metrics metrics = Metrics.global;
+		boolean detailed = metrics.detailed;
+		long start = System.nanoTime();
+		PhaseEvent event = metrics.beginPhase();
+
+		try {
+			bw = new BufferedWriter(new FileWriter(outputFilename, false),
+					BUFFER_SIZE);
+			input = br.readLine();
+
+			while (input != null) {
+				boolean result;
+				if (detailed) {
+					long before = System.nanoTime();
+					result = matcher.matches(input);
+					long after = System.nanoTime();
+					bw.write(result ? "true\n" : "false\n");
+					metrics.recordMatch(after - before);
+					metrics.addNanos(Metrics.OUTPUT, System.nanoTime() - after);
+				} else {
+					result = matcher.matches(input);
+					bw.write(result ? "true\n" : "false\n");
+				}
+				if (result) {
+					accepted++;
+				}
+				count++;
+				if (flushInterval > 0 && count % flushInterval == 0) {
+					bw.flush();
+				}
+				input = br.readLine();
+			}
+
+			br.close();
+			bw.close();
+			metrics.endMatching(start, event, count, accepted);
+		} catch (IOException e) {
+			System.err.println("Error in I/O while attempting to output");
+			System.exit(1);
+		}
+	}
+
+	/*
+	 * Purpose: searches the rest of the input file, newlines included, for
+	 * every leftmost-longest match of the DFA, writing the span of each match
+	 * as a line "start end" of character offsets (end is exclusive)
+	 * 
+	 * @param dfa the DFA whose matches are searched for
+	 * 
+	 * @param br the reader of the input file, positioned after the expression
+	 * (closed once the search is done)
+	 * 
+	 * @param outputFilename the name of the output file
+	 * 
+	 * @param maxStates the maximum number of cached states of the forward
+	 * search automaton
+	 */
+	public static void search(DFA dfa, BufferedReader br,
+			String outputFilename, int maxStates) {
+		Metrics metrics = Metrics.global;
+		long start = System.nanoTime();
+		PhaseEvent event = metrics.beginPhase();
+
+		try {
+			BufferedWriter bw = new BufferedWriter(new FileWriter(
+					outputFilename, false), BUFFER_SIZE);
+			long count = new Searcher(dfa, maxStates).search(br, bw);
+			br.close();
+			bw.close();
+			metrics.endPhase(Metrics.MATCH, start, event, count);
+		} catch (IOException e) {
+			System.err.println("Error in I/O while attempting to output");
+			System.exit(1);
+		}
+	}
+
+	/*
+	 * Purpose: reads the rest of a set of expressions and combines them into
+	 * one DFA, exiting if any of them is invalid
+	 * 
+	 * @param re the alphabet and the first expression of the set
+	 * 
+	 * @param br the reader of the input file, positioned after the first
+	 * expression
+	 * 
+	 * @param filename the name of the input file
+	 * 
+	 * @param count the number of expressions in the set
+	 * 
+	 * @param outputFilename the name of the output file
+	 * 
+	 * @return the compiled set
+	 */
+	public static PatternSet buildPatternSet(RegularExpression re,
+			BufferedReader br, String filename, int count,
+			String outputFilename) {
+		StringBuilder alphabet = new StringBuilder();
+		for (Character c : re.alphabet) {
+			alphabet.append(c.charValue());
+		}
+		String[] expressions = new String[count];
+		expressions[0] = re.expression;
+		try {
+			for (int i = 1; i < count; i++) {
+				expressions[i] = br.readLine();
+				System.out.println("Now parsing: " + expressions[i]);
+			}
+		} catch (IOException e) {
+			System.err.println(filename + " not found");
+			System.exit(1);
+		}
+
+		long start = System.nanoTime();
+		PhaseEvent event = Metrics.global.beginPhase();
+		PatternSet set = null;
+		try {
+			set = PatternSet.compile(alphabet.toString(), expressions);
+		} catch (InvalidExpressionException e) {
+			System.out.println("\nFAILURE: Invalid expression ("
+					+ e.getMessage() + ")");
+			writeResult(false, outputFilename, 0, true);
+			System.exit(0);
+		}
+		Metrics.global.dfaStates.set(set.numStates());
+		Metrics.global.endPhase(Metrics.DETERMINIZE, start, event,
+				set.numStates());
+		System.out.println("\nSUCCESS: " + count
+				+ " expressions >> one DFA of " + set.numStates()
+				+ " states. Please refer to output file for results.");
+		return set;
+	}
 
-		currentSubset = toolbox.cloneInt(buildStartState(currentSubset,
-				transitionFunction));
+	/*
+	 * Purpose: computes the matching expressions of each test case with one
+	 * pass over the combined DFA of a set, writing their indexes (from 0, in
+	 * increasing order, separated by spaces) as one line per test case
+	 * 
+	 * @param set the compiled set of expressions
+	 * 
+	 * @param br the reader of the input file, positioned at the first test
+	 * case (closed once all test cases are read)
+	 * 
+	 * @param outputFilename the name of the output file
+	 * 
+	 * @param flushInterval the number of results after which the output is
+	 * flushed, or 0 to flush only when the buffer is full
+	 */
+	public static void computeSet(PatternSet set, BufferedReader br,
+			String outputFilename, int flushInterval) {
+		Metrics metrics = Metrics.global;
+		int count = 0, accepted = 0;
+		long start = System.nanoTime();
+		PhaseEvent event = metrics.beginPhase();
 
-		for (Integer i : currentSubset) {
-			for (Transition t : transitionFunction) {
-				if (t.input == alpha.charValue() && t.start == i.intValue()) {
-					if (!toReturn.contains(t.end)) {
-						toReturn.add(new Integer(t.end));
-						temp.add(new Integer(t.end));
+		try {
+			BufferedWriter bw = new BufferedWriter(new FileWriter(
+					outputFilename, false), BUFFER_SIZE);
+			String input = br.readLine();
+			while (input != null) {
+				int[] matching = set.matchAll(input);
+				for (int i = 0; i < matching.length; i++) {
+					if (i > 0) {
+						bw.write(' ');
 					}
+					bw.write(Integer.toString(matching[i]));
+				}
+				bw.write('\n');
+				if (matching.length > 0) {
+					accepted++;
+				}
+				count++;
+				if (flushInterval > 0 && count % flushInterval == 0) {
+					bw.flush();
+				}
+				input = br.readLine();
+			}
+
+			br.close();
+			bw.close();
+			metrics.testCases.add(count);
+			metrics.acceptedTestCases.add(accepted);
+			metrics.endPhase(Metrics.MATCH, start, event, count);
+		} catch (IOException e) {
+			System.err.println("Error in I/O while attempting to output");
+			System.exit(1);
+		}
+	}
 
-					// trace all epsilon transitions
-					while (!temp.isEmpty()) {
-						for (Transition t2 : transitionFunction) {
-							if (t2.start == temp.get(0).intValue()
-									&& t2.input == 'e') {
-								if (!temp.contains(t2.end)) {
-									toReturn.add(new Integer(t2.end));
-									temp.add(new Integer(t2.end));
+	/*
+	 * Purpose: computes the result of each test case on several worker
+	 * threads - the test cases are read in batches, each batch is matched by a
+	 * worker against the shared (read only) matcher, and the results are
+	 * written in their original order
+	 * 
+	 * @param matcher the engine on which the computation will run, which must
+	 * be safe to share between threads
+	 * 
+	 * @param br the reader of the input file, positioned at the first test
+	 * case (closed once all test cases are read)
+	 * 
+	 * @param outputFilename the name of the output file
+	 * 
+	 * @param options the number of threads, kind of threads, batch size and
+	 * flush interval to use
+	 */
+	public static void computeParallel(final Matcher matcher,
+			BufferedReader br, String outputFilename, Options options) {
+		ExecutorService workers = newWorkers(options);
+		ArrayDeque<Future<boolean[]>> pending = new ArrayDeque<Future<boolean[]>>();
+		int maxPending = options.threads * 4;
+		int count = 0, accepted = 0;
+		final Metrics metrics = Metrics.global;
+		final boolean detailed = metrics.detailed;
+		long start = System.nanoTime();
+		PhaseEvent event = metrics.beginPhase();
+
+		try {
+			BufferedWriter bw = new BufferedWriter(new FileWriter(
+					outputFilename, false), BUFFER_SIZE);
+			boolean done = false;
+
+			while (!done || !pending.isEmpty()) {
+				if (!done) {
+					final ArrayList<String> batch = new ArrayList<String>(
+							options.batchSize);
+					String input = br.readLine();
+					while (input != null) {
+						batch.add(input);
+						if (batch.size() == options.batchSize) {
+							break;
+						}
+						input = br.readLine();
+					}
+					done = (input == null);
+					if (!batch.isEmpty()) {
+						pending.add(workers.submit(new Callable<boolean[]>() {
+							public boolean[] call() {
+								boolean[] results = new boolean[batch.size()];
+								for (int i = 0; i < results.length; i++) {
+									if (detailed) {
+										long before = System.nanoTime();
+										results[i] = matcher.matches(batch.get(i));
+										metrics.recordMatch(System.nanoTime()
+												- before);
+									} else {
+										results[i] = matcher.matches(batch.get(i));
+									}
 								}
+								return results;
 							}
+						}));
+					}
+				}
+
+				// write the oldest batch once enough work is queued up
+				if (pending.size() >= maxPending || (done && !pending.isEmpty())) {
+					boolean[] results = pending.poll().get();
+					long before = System.nanoTime();
+					for (boolean result : results) {
+						bw.write(result ? "true\n" : "false\n");
+						if (result) {
+							accepted++;
+						}
+						count++;
+						if (options.flushInterval > 0
+								&& count % options.flushInterval == 0) {
+							bw.flush();
 						}
-						temp.remove(0);
+					}
+					if (detailed) {
+						metrics.addNanos(Metrics.OUTPUT, System.nanoTime()
+								- before);
 					}
 				}
 			}
-		}
 
-		Collections.sort(toReturn);
-		return toReturn;
+			br.close();
+			bw.close();
+			metrics.endMatching(start, event, count, accepted);
+		} catch (IOException e) {
+			System.err.println("Error in I/O while attempting to output");
+			System.exit(1);
+		} catch (InterruptedException e) {
+			System.err.println("Interrupted while computing test cases");
+			System.exit(1);
+		} catch (ExecutionException e) {
+			System.err.println("Error while computing test cases: "
+					+ e.getCause());
+			System.exit(1);
+		} finally {
+			workers.shutdown();
+		}
 	}
 
 	/*
-	 * Purpose: searches a list of Mappings to find the index of a specific
-	 * state
-	 * 
-	 * @param f the list of Mappings
+	 * Purpose: creates the pool of worker threads - virtual threads are only
+	 * available on newer JVMs, so they are looked up reflectively and platform
+	 * threads are used when they are missing
 	 * 
-	 * @param end the target subset for which this method will find an index
+	 * @param options the number and kind of threads to use
 	 * 
-	 * @return the index of the given subset
+	 * @return the pool of worker threads
 	 */
-	public static int searchMapping(ArrayList<Mapping> f, ArrayList<Integer> end) {
-		int toReturn = 0;
-		for (Mapping m : f) {
-			if (m.nfaIndex.equals(end)) {
-				toReturn = m.dfaIndex;
-				break;
+	public static ExecutorService newWorkers(Options options) {
+		if (options.virtualThreads) {
+			try {
+				return (ExecutorService) Executors.class.getMethod(
+						"newVirtualThreadPerTaskExecutor").invoke(null);
+			} catch (ReflectiveOperationException e) {
+				System.out
+						.println("Virtual threads are not supported by this JVM, using platform threads");
 			}
 		}
-
-		return toReturn;
+		return Executors.newFixedThreadPool(options.threads);
 	}
 
 	/*
-	 * Purpose: computes the result of a given input string based on the
-	 * converted DFA
+	 * Purpose: computes the result of each test case by memory mapping the
+	 * input file and running the DFA directly over its bytes, with no String
+	 * built per line - test cases are separated by '\n' bytes (a '\r' before
+	 * it is ignored), so the input file is expected to be ASCII
 	 * 
 	 * @param dfa the DFA on which the computation will run
 	 * 
 	 * @param inputFilename the name of the input file
 	 * 
 	 * @param outputFilename the name of the output file
+	 * 
+	 * @param flushInterval the number of results after which the output is
+	 * flushed, or 0 to flush only when the buffer is full
 	 */
-	public static void compute(DFA dfa, String inputFilename,
-			String outputFilename) {
-		BufferedReader br;
-		String input;
-		boolean result;
-		int count = 0;
+	public static void computeMapped(DFA dfa, String inputFilename,
+			String outputFilename, int flushInterval) {
+		if (dfa.table == null) {
+			dfa.buildTable();
+		}
+		int[] table = dfa.table;
+		int[] symbolIndex = dfa.symbolIndex;
+		int k = dfa.alphabet.size();
+		boolean[] accept = dfa.accept;
+		boolean[] absorbing = dfa.absorbing;
+		int currentState = dfa.startState;
+		boolean inRecord = false;
+		int count = 0, accepted = 0;
+		long start = System.nanoTime();
+		PhaseEvent event = Metrics.global.beginPhase();
 
 		try {
-			br = new BufferedReader(new FileReader(inputFilename));
-			br.readLine();
-			br.readLine();
-			input = br.readLine();
+			RandomAccessFile file = new RandomAccessFile(inputFilename, "r");
+			FileChannel channel = file.getChannel();
+			BufferedWriter bw = new BufferedWriter(new FileWriter(
+					outputFilename, false), BUFFER_SIZE);
+			long size = channel.size();
+
+			// the test cases start after the alphabet and expression lines
+			long position = 0;
+			int newlines = 0;
+			while (position < size && newlines < 2) {
+				MappedByteBuffer buffer = channel.map(
+						FileChannel.MapMode.READ_ONLY, position,
+						Math.min(MAP_WINDOW, size - position));
+				int limit = buffer.limit(), i = 0;
+				while (i < limit && newlines < 2) {
+					if (buffer.get(i++) == '\n') {
+						newlines++;
+					}
+				}
+				position += i;
+			}
 
-			while (input != null) {
-				result = testInput(dfa, input);
-				writeResult(result, outputFilename, count, false);
-				input = br.readLine();
+			while (position < size) {
+				MappedByteBuffer buffer = channel.map(
+						FileChannel.MapMode.READ_ONLY, position,
+						Math.min(MAP_WINDOW, size - position));
+				int limit = buffer.limit();
+				for (int i = 0; i < limit; i++) {
+					int c = buffer.get(i) & 0xFF;
+					if (c == '\n') {
+						if (accept[currentState]) {
+							accepted++;
+						}
+						bw.write(accept[currentState] ? "true\n" : "false\n");
+						currentState = dfa.startState;
+						inRecord = false;
+						count++;
+						if (flushInterval > 0 && count % flushInterval == 0) {
+							bw.flush();
+						}
+					} else {
+						inRecord = true;
+						if (c != '\r' && c < symbolIndex.length
+								&& symbolIndex[c] >= 0
+								&& !absorbing[currentState]) {
+							currentState = table[currentState * k
+									+ symbolIndex[c]];
+						}
+					}
+				}
+				position += limit;
+			}
+
+			// the last test case need not end with a newline
+			if (inRecord) {
+				if (accept[currentState]) {
+					accepted++;
+				}
+				bw.write(accept[currentState] ? "true\n" : "false\n");
 				count++;
 			}
 
+			channel.close();
+			file.close();
+			bw.close();
+
+			// test cases are not timed one by one here, the whole run counts
+			// as matching
+			Metrics.global.testCases.add(count);
+			Metrics.global.acceptedTestCases.add(accepted);
+			Metrics.global.endPhase(Metrics.MATCH, start, event, count);
 		} catch (IOException e) {
 			System.err.println("Error in I/O while attempting to output");
 			System.exit(1);
@@ -679,35 +1342,37 @@ public class RegularExpressionParser {
 	 * language based on dfa
 	 */
 	public static boolean testInput(DFA dfa, String input) {
-		Object currentInput;
+		if (dfa.table == null) {
+			dfa.buildTable();
+		}
+		int[] table = dfa.table;
+		int[] symbolIndex = dfa.symbolIndex;
+		boolean[] absorbing = dfa.absorbing;
+		int k = dfa.alphabet.size();
 		int currentState = dfa.startState;
-		int size = input.length(), index = 0, i = 0;
-
-		// large loop to run through each character of the input string
-		while (index < size) {
-			currentInput = new Character(input.charAt(index));
-			i = 0;
-			while (i < dfa.transitionFunction.size()) {
-				if (dfa.transitionFunction.get(i).start == currentState) {
-					if (currentInput.equals((Character) dfa.transitionFunction
-							.get(i).input)) {
-						currentState = dfa.transitionFunction.get(i).end;
+		int size = input.length();
+
+		// one table lookup per character; characters outside of the alphabet
+		// leave the current state unchanged, and once a dead or universal
+		// state is entered the rest of the input is not read
+		if (absorbing[currentState]) {
+			return dfa.accept[currentState];
+		}
+		for (int index = 0; index < size; index++) {
+			char c = input.charAt(index);
+			if (c < symbolIndex.length) {
+				int symbol = symbolIndex[c];
+				if (symbol >= 0) {
+					currentState = table[currentState * k + symbol];
+					if (absorbing[currentState]) {
 						break;
 					}
 				}
-				i++;
 			}
-			index++;
 		}
 
 		// check and see if the final state is an accepting state
-		for (i = 0; i < dfa.endStates.size(); i++) {
-			if (currentState == dfa.endStates.get(i)) {
-				return true;
-			}
-		}
-
-		return false;
+		return dfa.accept[currentState];
 	}
 
 	/*
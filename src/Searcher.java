@@ -0,0 +1,414 @@
+/*
+ * Finds every leftmost-longest match of a DFA in a stream of text, rather
+ * than testing whole lines: a lazily built forward DFA, which has an implicit
+ * Sigma* prefix, finds where each match ends, and a reverse DFA run backward
+ * from that end finds where it starts. Matches never overlap, empty matches
+ * are not reported, and characters outside of the alphabet never occur in a
+ * match.
+ * 
+ * A forward state is the list of the states of the DFA reached by the
+ * matches still in progress (threads), ordered by where they started, with a
+ * flag recording that a match was found. Once a thread accepts, the threads
+ * that started after it are dropped and no new thread is started, so the
+ * forward DFA dies exactly when the leftmost-longest match is complete.
+ * 
+ * Only the text from the start of the earliest thread still alive is kept:
+ * when the buffer fills up, a second reverse DFA, of the prefixes of
+ * matches, finds where that thread started, and the text before it is
+ * dropped. The buffer only grows while a single match in progress spans
+ * most of it, up to MAX_WINDOW characters.
+ * 
+ * Not safe for use by several threads at once, since searching fills the
+ * state cache.
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+class Searcher {
+
+	// the most text a match in progress may span
+	public static final int MAX_WINDOW = 1 << 30;
+
+	public DFA dfa;
+	public DFA reverse;
+	public int maxStates;
+	public int numStates;
+	public int flushes;
+	// the size the text buffer grew to, in characters
+	public int window;
+
+	// the reverse DFA of the prefixes of matches, built the first time the
+	// buffer fills up with threads alive
+	private DFA prefixReverse;
+
+	private int k;
+	private int[] symbolIndex;
+	private HashMap<Key, Integer> ids;
+	private ArrayList<Key> keys;
+	private int[] next;
+	private boolean[] accept;
+
+	// state 0 is the initial state, with no thread and no match, and state 1
+	// is the dead state, with no thread left after a match
+	private static final Key INITIAL = new Key(new int[0], false);
+	private static final Key DEAD = new Key(new int[0], true);
+
+	public Searcher(DFA dfa, int maxStates) {
+		this.dfa = dfa;
+		this.maxStates = Math.max(4, maxStates);
+		k = dfa.alphabet.size();
+		symbolIndex = dfa.symbolIndex;
+		reverse = buildReverse(dfa, dfa.accept);
+
+		ids = new HashMap<Key, Integer>();
+		keys = new ArrayList<Key>();
+		next = new int[this.maxStates * (k + 1)];
+		accept = new boolean[this.maxStates];
+		flush();
+	}
+
+	/*
+	 * Purpose: builds the minimal DFA of the reversed language of a DFA, by
+	 * reversing its transitions between states that are not dead into an NFA
+	 * whose start state has an epsilon transition to every end state
+	 * 
+	 * @param dfa the DFA to be reversed
+	 * 
+	 * @param ends a flag per state number, true for the states the reversed
+	 * words end in - the accept states for the language of dfa, and every
+	 * state that is not dead for the prefixes of its words
+	 * 
+	 * @return the reverse DFA, over the same symbol classes as dfa
+	 */
+	public static DFA buildReverse(DFA dfa, boolean[] ends) {
+		int n = dfa.numStates;
+		int k = dfa.alphabet.size();
+		NFA nfa = new NFA(dfa.alphabet, dfa.symbolIndex);
+		for (int q = 1; q <= n; q++) {
+			nfa.addState();
+		}
+		nfa.startState = nfa.addState();
+		for (int q = 1; q <= n; q++) {
+			if (ends[q]) {
+				nfa.addEdge(nfa.startState, NFA.EPSILON, q);
+			}
+			for (int a = 0; a < k && !dfa.dead[q]; a++) {
+				int target = dfa.table[q * k + a];
+				if (!dfa.dead[target]) {
+					nfa.addEdge(target, a, q);
+				}
+			}
+		}
+		nfa.endStates.add(Integer.valueOf(dfa.startState));
+		return RegularExpressionParser.subsetConstruction(nfa).minimize();
+	}
+
+	/*
+	 * Purpose: writes the span of every leftmost-longest match in the text as
+	 * a line "start end", where start is the offset of its first character
+	 * and end is the offset just past its last character
+	 * 
+	 * @param in the text to be searched (not closed)
+	 * 
+	 * @param out where the spans are written (neither flushed nor closed)
+	 * 
+	 * @return the number of matches found
+	 * 
+	 * @throws IOException if reading in or writing out fails
+	 */
+	public long search(Reader in, Writer out) throws IOException {
+		char[] buffer = new char[RegularExpressionParser.BUFFER_SIZE];
+		int length = 0;
+		window = buffer.length;
+
+		// buffer[0] is at offset base of the text, and the text before pos
+		// can no longer be part of a match
+		long base = 0;
+		int pos = 0, index = 0, lastEnd = -1;
+		int state = 0;
+		long count = 0;
+		boolean eof = false;
+
+		while (true) {
+			if (index == length && !eof) {
+				if (length == buffer.length) {
+					// drop the text before the earliest thread, and grow the
+					// buffer if that frees less than half of it, so that
+					// each character is only moved a constant number of
+					// times on average
+					int keep = state == 0 ? index : firstStart(buffer, pos,
+							index);
+					if (lastEnd >= 0) {
+						keep = Math.min(keep, findStart(buffer, pos, lastEnd));
+					}
+					System.arraycopy(buffer, keep, buffer, 0, length - keep);
+					length -= keep;
+					index -= keep;
+					pos = Math.max(pos - keep, 0);
+					if (lastEnd >= 0) {
+						lastEnd -= keep;
+					}
+					base += keep;
+					if (2 * length > buffer.length) {
+						if (buffer.length <= MAX_WINDOW / 2) {
+							buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+							window = buffer.length;
+						} else if (length == buffer.length) {
+							throw new IOException("a match spans more than "
+									+ buffer.length + " characters");
+						}
+					}
+				}
+				int read = in.read(buffer, length, buffer.length - length);
+				if (read < 0) {
+					eof = true;
+				} else {
+					length += read;
+				}
+				continue;
+			}
+
+			if (state == 1 || (index == length && lastEnd >= 0)) {
+				int start = findStart(buffer, pos, lastEnd);
+				out.write(Long.toString(base + start));
+				out.write(' ');
+				out.write(Long.toString(base + lastEnd));
+				out.write('\n');
+				count++;
+				index = pos = lastEnd;
+				lastEnd = -1;
+				state = 0;
+				continue;
+			}
+			if (index == length) {
+				return count;
+			}
+
+			char c = buffer[index++];
+			int symbol = (c < symbolIndex.length && symbolIndex[c] >= 0) ? symbolIndex[c]
+					: k;
+			int target = next[state * (k + 1) + symbol];
+			if (target < 0) {
+				Key end = step(keys.get(state), symbol);
+				target = lookup(end);
+				if (target < 0) {
+					if (numStates == maxStates) {
+						Key current = keys.get(state);
+						flush();
+						state = lookup(current);
+						if (state < 0) {
+							state = add(current);
+						}
+					}
+					target = add(end);
+				}
+				next[state * (k + 1) + symbol] = target;
+			}
+			state = target;
+			if (accept[state]) {
+				lastEnd = index;
+			} else if (state == 0) {
+				pos = index;
+			}
+		}
+	}
+
+	/*
+	 * Purpose: finds the start of the leftmost match ending at a given end, by
+	 * running the reverse DFA backward from the end
+	 * 
+	 * @param buffer the text being searched
+	 * 
+	 * @param pos the offset in buffer before which no match may start
+	 * 
+	 * @param end the offset in buffer just past the match
+	 * 
+	 * @return the offset in buffer of the first character of the match
+	 */
+	private int findStart(char[] buffer, int pos, int end) {
+		int[] table = reverse.table;
+		int[] index = reverse.symbolIndex;
+		int state = reverse.startState;
+		int start = end;
+		for (int i = end - 1; i >= pos; i--) {
+			char c = buffer[i];
+			if (c >= index.length || index[c] < 0) {
+				break;
+			}
+			state = table[state * k + index[c]];
+			if (reverse.dead[state]) {
+				break;
+			}
+			if (reverse.accept[state]) {
+				start = i;
+			}
+		}
+		return start;
+	}
+
+	/*
+	 * Purpose: finds the start of the earliest thread still alive, by running
+	 * the reverse DFA of the prefixes of matches backward from the current
+	 * offset
+	 * 
+	 * @param buffer the text being searched
+	 * 
+	 * @param pos the offset in buffer before which no thread started
+	 * 
+	 * @param index the current offset in buffer
+	 * 
+	 * @return the offset in buffer at which the thread started, or index if
+	 * no thread is alive
+	 */
+	private int firstStart(char[] buffer, int pos, int index) {
+		if (prefixReverse == null) {
+			boolean[] live = new boolean[dfa.numStates + 1];
+			for (int q = 1; q <= dfa.numStates; q++) {
+				live[q] = !dfa.dead[q];
+			}
+			prefixReverse = buildReverse(dfa, live);
+		}
+		int[] table = prefixReverse.table;
+		int[] symbols = prefixReverse.symbolIndex;
+		int state = prefixReverse.startState;
+		int start = index;
+		for (int i = index - 1; i >= pos; i--) {
+			char c = buffer[i];
+			if (c >= symbols.length || symbols[c] < 0) {
+				break;
+			}
+			state = table[state * k + symbols[c]];
+			if (prefixReverse.dead[state]) {
+				break;
+			}
+			if (prefixReverse.accept[state]) {
+				start = i;
+			}
+		}
+		return start;
+	}
+
+	/*
+	 * Purpose: computes the forward state reached from a state on a symbol
+	 * 
+	 * @param from the state to step from
+	 * 
+	 * @param symbol the symbol index of the input character, or k for a
+	 * character outside of the alphabet
+	 * 
+	 * @return the state reached
+	 */
+	private Key step(Key from, int symbol) {
+		int[] threads = new int[from.threads.length + 1];
+		int size = 0;
+		if (symbol < k) {
+			boolean[] seen = new boolean[dfa.numStates + 1];
+			for (int i = 0; i <= from.threads.length; i++) {
+				int q;
+				if (i < from.threads.length) {
+					q = from.threads[i];
+				} else if (!from.matched) {
+					q = dfa.startState;
+				} else {
+					break;
+				}
+				int target = dfa.table[q * k + symbol];
+				if (!dfa.dead[target] && !seen[target]) {
+					seen[target] = true;
+					threads[size++] = target;
+				}
+			}
+		}
+
+		// the first thread to accept is the leftmost match, so the threads
+		// that started after it can only give matches starting later
+		boolean matched = from.matched;
+		for (int i = 0; i < size; i++) {
+			if (dfa.accept[threads[i]]) {
+				size = i + 1;
+				matched = true;
+				break;
+			}
+		}
+		return new Key(Arrays.copyOf(threads, size), matched);
+	}
+
+	/*
+	 * Purpose: finds a forward state in the cache
+	 * 
+	 * @param key the forward state
+	 * 
+	 * @return its number, or -1 if it is not cached
+	 */
+	private int lookup(Key key) {
+		Integer id = ids.get(key);
+		return id == null ? -1 : id.intValue();
+	}
+
+	/*
+	 * Purpose: empties the state cache, keeping only the initial and dead
+	 * states
+	 */
+	private void flush() {
+		if (numStates > 0) {
+			flushes++;
+		}
+		ids.clear();
+		keys.clear();
+		Arrays.fill(next, -1);
+		numStates = 0;
+		add(INITIAL);
+		add(DEAD);
+	}
+
+	/*
+	 * Purpose: adds a forward state to the cache
+	 * 
+	 * @param key the forward state
+	 * 
+	 * @return the number of the new state
+	 */
+	private int add(Key key) {
+		int id = numStates++;
+		ids.put(key, Integer.valueOf(id));
+		keys.add(key);
+		int[] threads = key.threads;
+		accept[id] = threads.length > 0
+				&& dfa.accept[threads[threads.length - 1]];
+		return id;
+	}
+
+	/*
+	 * A forward state: the DFA states of the threads, and whether a match was
+	 * found
+	 */
+	private static class Key {
+		final int[] threads;
+		final boolean matched;
+		final int hash;
+
+		Key(int[] threads, boolean matched) {
+			this.threads = threads;
+			this.matched = matched;
+			hash = 31 * Arrays.hashCode(threads) + (matched ? 1 : 0);
+		}
+
+		public int hashCode() {
+			return hash;
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return matched == other.matched
+					&& Arrays.equals(threads, other.threads);
+		}
+	}
+}
@@ -1,14 +0,0 @@
-/*
- * Object representation of a DFA state (list of NFA states)
- */
-class State {
-	public ArrayList<Integer> Q;
-
-	public State(ArrayList<Integer> Q) {
-		this.Q = Q;
-	}
-
-	public State() {
-		this.Q = null;
-	}
-}
\ No newline at end of file
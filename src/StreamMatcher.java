@@ -0,0 +1,156 @@
+/*
+ * Incremental form of a compiled DFA, for test cases too large to hold in
+ * memory: the input is fed in chunks of any size, and the current DFA state
+ * is carried from one chunk to the next. Characters outside of the alphabet
+ * are skipped, as in the input files, and bytes stand for the characters of
+ * the same value (ISO-8859-1).
+ *
+ * Not safe for use by several threads at once, since feeding changes the
+ * current state; each thread can take its own from the same Pattern.
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+final class StreamMatcher {
+	private final int k;
+	private final int startState;
+	private final int[] table;
+	private final boolean[] accept;
+	private final boolean[] absorbing;
+	private final int[] symbolIndex;
+	private int state;
+
+	StreamMatcher(int k, int startState, int[] table, boolean[] accept,
+			boolean[] absorbing, int[] symbolIndex) {
+		this.k = k;
+		this.startState = startState;
+		this.table = table;
+		this.accept = accept;
+		this.absorbing = absorbing;
+		this.symbolIndex = symbolIndex;
+		state = startState;
+	}
+
+	public StreamMatcher(DFA dfa) {
+		this(dfa.alphabet.size(), dfa.startState, dfa.table, dfa.accept,
+				dfa.absorbing, dfa.symbolIndex);
+	}
+
+	/*
+	 * Purpose: goes back to the start state, to match a new input
+	 */
+	public void reset() {
+		state = startState;
+	}
+
+	/*
+	 * Purpose: determines if the input fed so far is in the language
+	 * 
+	 * @return a boolean which represents if the input fed since the last
+	 * reset is in the language
+	 */
+	public boolean isAccepting() {
+		return accept[state];
+	}
+
+	/*
+	 * Purpose: determines if the result can still change - once a dead or
+	 * universal state is entered, the rest of the input need not be fed
+	 * 
+	 * @return true if isAccepting() will not change until the next reset
+	 */
+	public boolean isDecided() {
+		return absorbing[state];
+	}
+
+	/*
+	 * Purpose: feeds a range of characters
+	 * 
+	 * @param input the characters holding the chunk
+	 * 
+	 * @param offset the index of the first character of the chunk
+	 * 
+	 * @param length the number of characters of the chunk
+	 */
+	public void feed(char[] input, int offset, int length) {
+		if (offset < 0 || length < 0 || offset > input.length - length) {
+			throw new IndexOutOfBoundsException("offset " + offset
+					+ ", length " + length + ", size " + input.length);
+		}
+		int current = state;
+		for (int i = offset, end = offset + length; i < end
+				&& !absorbing[current]; i++) {
+			char c = input[i];
+			if (c < symbolIndex.length && symbolIndex[c] >= 0) {
+				current = table[current * k + symbolIndex[c]];
+			}
+		}
+		state = current;
+	}
+
+	public void feed(char[] input) {
+		feed(input, 0, input.length);
+	}
+
+	/*
+	 * Purpose: feeds a chunk of characters
+	 * 
+	 * @param input the chunk
+	 */
+	public void feed(CharSequence input) {
+		int current = state;
+		for (int i = 0, size = input.length(); i < size
+				&& !absorbing[current]; i++) {
+			char c = input.charAt(i);
+			if (c < symbolIndex.length && symbolIndex[c] >= 0) {
+				current = table[current * k + symbolIndex[c]];
+			}
+		}
+		state = current;
+	}
+
+	/*
+	 * Purpose: feeds the remaining characters of a buffer, which is left at
+	 * its limit
+	 * 
+	 * @param input the buffer holding the chunk
+	 */
+	public void feed(CharBuffer input) {
+		if (input.hasArray()) {
+			feed(input.array(), input.arrayOffset() + input.position(),
+					input.remaining());
+		} else {
+			int current = state;
+			for (int i = input.position(), end = input.limit(); i < end
+					&& !absorbing[current]; i++) {
+				char c = input.get(i);
+				if (c < symbolIndex.length && symbolIndex[c] >= 0) {
+					current = table[current * k + symbolIndex[c]];
+				}
+			}
+			state = current;
+		}
+		input.position(input.limit());
+	}
+
+	/*
+	 * Purpose: feeds the remaining bytes of a buffer, each byte standing for
+	 * the character of the same value (ISO-8859-1), and leaves the buffer at
+	 * its limit
+	 * 
+	 * @param input the buffer holding the chunk
+	 */
+	public void feed(ByteBuffer input) {
+		int current = state;
+		for (int i = input.position(), end = input.limit(); i < end
+				&& !absorbing[current]; i++) {
+			int c = input.get(i) & 0xFF;
+			if (c < symbolIndex.length && symbolIndex[c] >= 0) {
+				current = table[current * k + symbolIndex[c]];
+			}
+		}
+		state = current;
+		input.position(input.limit());
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Array backed representation of the abstract syntax tree of a Regular
+ * Expression. Node i holds the operator or character data[i] and the indices
+ * of its children left[i] and right[i] (-1 for none). Nodes are only added
+ * after their children, so the node order is a post order of the tree.
+ */
+
+import java.util.Arrays;
+
+class SyntaxTree {
+	public int size;
+	public int root;
+	public char[] data;
+	public int[] left;
+	public int[] right;
+
+	public SyntaxTree(int capacity) {
+		size = 0;
+		root = -1;
+		capacity = Math.max(capacity, 4);
+		data = new char[capacity];
+		left = new int[capacity];
+		right = new int[capacity];
+	}
+
+	/*
+	 * Purpose: adds a node to the tree
+	 * 
+	 * @param c the operator or character of the node
+	 * 
+	 * @param leftChild the index of the left child, or -1
+	 * 
+	 * @param rightChild the index of the right child, or -1
+	 * 
+	 * @return the index of the new node
+	 */
+	public int add(char c, int leftChild, int rightChild) {
+		if (size == data.length) {
+			data = Arrays.copyOf(data, 2 * size);
+			left = Arrays.copyOf(left, 2 * size);
+			right = Arrays.copyOf(right, 2 * size);
+		}
+		data[size] = c;
+		left[size] = leftChild;
+		right[size] = rightChild;
+		return size++;
+	}
+
+	/*
+	 * Purpose: determines if a node is a leaf node
+	 * 
+	 * @param node the index of the node
+	 * 
+	 * @return a boolean, true if the node has no children
+	 */
+	public boolean isLeaf(int node) {
+		return left[node] < 0 && right[node] < 0;
+	}
+}
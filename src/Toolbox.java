@@ -2,6 +2,9 @@
  * Helper class, used to create deep copies of ArrayLists (rather than shallow
  * copies), works with multiple data types (Character, Integer, and Transition)
  */
+
+import java.util.ArrayList;
+
 class Toolbox {
 
 	/*
@@ -14,7 +17,7 @@ class Toolbox {
 	public ArrayList<Character> cloneChar(ArrayList<Character> toClone) {
 		ArrayList<Character> clone = new ArrayList<Character>(toClone.size());
 		for (Character toChar : toClone) {
-			clone.add(new Character(toChar));
+			clone.add(Character.valueOf(toChar.charValue()));
 		}
 		return clone;
 	}
@@ -29,7 +32,7 @@ class Toolbox {
 	public ArrayList<Integer> cloneInt(ArrayList<Integer> toClone) {
 		ArrayList<Integer> clone = new ArrayList<Integer>(toClone.size());
 		for (Integer toInt : toClone) {
-			clone.add(new Integer(toInt));
+			clone.add(Integer.valueOf(toInt.intValue()));
 		}
 		return clone;
 	}
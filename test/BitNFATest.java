@@ -0,0 +1,47 @@
+/*
+ * Checks the bit-parallel NFA simulation against NaiveMatcher, on generated
+ * expressions and on large ones whose state sets span several words
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class BitNFATest {
+
+	static void assertAgree(String alphabet, String expression,
+			Expressions generator, int maxLength) {
+		NaiveMatcher matcher = NaiveMatcher.parse(alphabet, expression);
+		BitNFA nfa = new BitNFA(Expressions.nfa(alphabet, expression));
+		for (int n = 0; n < 40; n++) {
+			String input = generator.input(maxLength);
+			assertEquals(matcher.matches(input), nfa.matches(input), "\""
+					+ expression + "\" on \"" + input + "\"");
+		}
+	}
+
+	@Test
+	void generatedExpressions() {
+		String[] alphabets = { "ab", "abc", "01" };
+		for (int seed = 0; seed < 600; seed++) {
+			String alphabet = alphabets[seed % alphabets.length];
+			Expressions generator = new Expressions(seed, alphabet);
+			assertAgree(alphabet, generator.expression(), generator, 12);
+		}
+	}
+
+	@Test
+	void largeExpressions() {
+		int spanning = 0;
+		for (int seed = 0; seed < 40; seed++) {
+			Expressions generator = new Expressions(seed, "abc");
+			String expression = generator.large();
+			if (new BitNFA(Expressions.nfa("abc", expression)).words > 1) {
+				spanning++;
+			}
+			assertAgree("abc", expression, generator, 40);
+		}
+		assertTrue(spanning > 20, spanning + " NFAs of over 64 states");
+	}
+}
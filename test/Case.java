@@ -0,0 +1,188 @@
+/*
+ * An input file of the program - an alphabet, a Regular Expression and test
+ * cases - with the output the original program wrote for it, from res/ or
+ * from test/corpus.txt
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+class Case {
+	public static final String INVALID = "Invalid Expression";
+
+	public final String name;
+	public final String alphabet;
+	public final String expression;
+	public final List<String> inputs;
+	// the lines of the expected output
+	public final List<String> expected;
+
+	public Case(String name, String alphabet, String expression,
+			List<String> inputs, List<String> expected) {
+		this.name = name;
+		this.alphabet = alphabet;
+		this.expression = expression;
+		this.inputs = inputs;
+		this.expected = expected;
+	}
+
+	/*
+	 * Purpose: builds the expected contents of the output file
+	 * 
+	 * @return the output, one line per result
+	 */
+	public String output() {
+		StringBuilder sb = new StringBuilder();
+		for (String line : expected) {
+			sb.append(line).append('\n');
+		}
+		return sb.toString();
+	}
+
+	public boolean isValid() {
+		return !expected.equals(Collections.singletonList(INVALID));
+	}
+
+	/*
+	 * Purpose: reads the cases of res/, each an input file reNIn.txt and the
+	 * expected output reNOut.txt
+	 * 
+	 * @return the cases
+	 */
+	public static List<Case> res() throws IOException {
+		List<Case> cases = new ArrayList<Case>();
+		for (int i = 1; new File("res/re" + i + "In.txt").exists(); i++) {
+			List<String> lines = readLines(new File("res/re" + i + "In.txt"));
+			cases.add(new Case("re" + i, lines.get(0), lines.get(1), lines
+					.subList(2, lines.size()), readLines(new File("res/re" + i
+					+ "Out.txt"))));
+		}
+		return cases;
+	}
+
+	/*
+	 * Purpose: reads the cases of test/corpus.txt - cases generated at random,
+	 * and run through the original program to record its output. Each case
+	 * is its alphabet, its expression, the number of test cases, the test
+	 * cases, and then either a result per test case or "Invalid Expression".
+	 * Cases the original program crashed or looped on are left out.
+	 * 
+	 * @return the cases
+	 */
+	public static List<Case> corpus() throws IOException {
+		List<String> lines = readLines(new File("test/corpus.txt"));
+		List<Case> cases = new ArrayList<Case>();
+		for (int i = 0; i < lines.size();) {
+			String alphabet = lines.get(i);
+			String expression = lines.get(i + 1);
+			int n = Integer.parseInt(lines.get(i + 2));
+			List<String> inputs = lines.subList(i + 3, i + 3 + n);
+			i += 3 + n;
+			List<String> expected = lines.subList(i, i + 1);
+			if (!expected.get(0).equals(INVALID)) {
+				expected = lines.subList(i, i + n);
+			}
+			i += expected.size();
+			cases.add(new Case("corpus " + cases.size(), alphabet, expression,
+					inputs, expected));
+		}
+		return cases;
+	}
+
+	/*
+	 * Purpose: reads the cases of res/ and test/corpus.txt
+	 * 
+	 * @return the cases
+	 */
+	public static List<Case> all() throws IOException {
+		List<Case> cases = res();
+		cases.addAll(corpus());
+		return cases;
+	}
+
+	/*
+	 * Purpose: writes the input file of the case
+	 * 
+	 * @param dir the directory of the file
+	 * 
+	 * @return the file
+	 */
+	public File write(File dir) throws IOException {
+		File file = new File(dir, name.replace(' ', '_') + "In.txt");
+		PrintWriter pw = new PrintWriter(file, "UTF-8");
+		try {
+			pw.print(alphabet + "\n" + expression + "\n");
+			for (String input : inputs) {
+				pw.print(input + "\n");
+			}
+		} finally {
+			pw.close();
+		}
+		return file;
+	}
+
+	/*
+	 * Purpose: runs the program on the case, in this JVM if the expression is
+	 * valid, or in a new one if not, since the program exits on an invalid
+	 * expression
+	 * 
+	 * @param dir the directory of the input and output files
+	 * 
+	 * @param options the options of the program
+	 * 
+	 * @return the contents of the output file
+	 */
+	public String run(File dir, String... options) throws Exception {
+		File in = write(dir);
+		File out = new File(dir, name.replace(' ', '_') + "Out.txt");
+		String[] args = Arrays.copyOf(options, options.length + 2);
+		args[options.length] = in.getPath();
+		args[options.length + 1] = out.getPath();
+		if (isValid()) {
+			RegularExpressionParser.main(args);
+		} else {
+			List<String> command = new ArrayList<String>(Arrays.asList(
+					new File(System.getProperty("java.home"), "bin/java")
+							.getPath(), "-cp", System
+							.getProperty("java.class.path"),
+					"RegularExpressionParser"));
+			command.addAll(Arrays.asList(args));
+			Process process = new ProcessBuilder(command)
+					.redirectErrorStream(true)
+					.redirectOutput(new File(dir, "stdout.txt")).start();
+			if (process.waitFor() != 0) {
+				throw new IOException("exit status " + process.exitValue());
+			}
+		}
+		return new String(Files.readAllBytes(out.toPath()),
+				StandardCharsets.UTF_8);
+	}
+
+	public static List<String> readLines(File file) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader br = new BufferedReader(new FileReader(file));
+		try {
+			for (String line = br.readLine(); line != null; line = br
+					.readLine()) {
+				lines.add(line);
+			}
+		} finally {
+			br.close();
+		}
+		return lines;
+	}
+
+	@Override
+	public String toString() {
+		return name + " \"" + expression + "\"";
+	}
+}
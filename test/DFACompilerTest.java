@@ -0,0 +1,56 @@
+/*
+ * Checks the matchers compiled to bytecode against NaiveMatcher, and the
+ * limit on the size of the DFAs compiled
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class DFACompilerTest {
+
+	@Test
+	void compiledMatchersAgreeWithNaiveMatcher() {
+		String[] alphabets = { "ab", "abc", "01" };
+		for (int seed = 0; seed < 600; seed++) {
+			String alphabet = alphabets[seed % alphabets.length];
+			Expressions generator = new Expressions(seed, alphabet);
+			boolean large = seed % 10 == 0;
+			String expression = large ? generator.large() : generator
+					.expression();
+			NaiveMatcher naive = NaiveMatcher.parse(alphabet, expression);
+			DFA dfa = Expressions.dfa(alphabet, expression);
+			// both the minimal DFA and the unminimized one, whose dead states
+			// are not merged
+			for (DFA d : new DFA[] { RegularExpressionParser.minimize(dfa),
+					dfa }) {
+				Matcher matcher = DFACompiler.compile(d);
+				if (matcher == null && large) {
+					// too much code for the JIT
+					continue;
+				}
+				assertNotNull(matcher, expression);
+				for (int n = 0; n < 40; n++) {
+					String input = generator.input(20);
+					assertEquals(naive.matches(input), matcher.matches(input),
+							"\"" + expression + "\" on \"" + input + "\"");
+				}
+			}
+		}
+	}
+
+	@Test
+	void largeDFAsAreNotCompiled() {
+		// (a|b)*a(a|b)(a|b)... needs a state per combination of the last
+		// characters
+		StringBuilder expression = new StringBuilder("(a|b)*a");
+		for (int n = 0; n < 12; n++) {
+			expression.append("(a|b)");
+		}
+		DFA dfa = RegularExpressionParser.minimize(Expressions.dfa("ab",
+				expression.toString()));
+		assertNull(DFACompiler.compile(dfa), dfa.numStates + " states");
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Writes and loads compiled DFAs, and runs the program with an on-disk DFA
+ * cache
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DFAFileTest {
+
+	@TempDir
+	Path temp;
+
+	@Test
+	void roundTrip() throws Exception {
+		for (int seed = 0; seed < 100; seed++) {
+			Expressions generator = new Expressions(seed, "abc");
+			String expression = generator.expression();
+			boolean minimize = seed % 2 == 0;
+			DFA dfa = RegularExpressionParser.compileDFA(Expressions.parse(
+					"abc", expression), minimize);
+			File file = DFAFile.cacheFile(temp.toString(), "abc", expression,
+					minimize);
+			DFAFile.write(dfa, "abc", expression, file);
+			DFA loaded = DFAFile.load(file, "abc", expression);
+			assertNotNull(loaded, expression);
+			assertEquals(dfa.numStates, loaded.numStates);
+			assertEquals(dfa.startState, loaded.startState);
+			assertArrayEquals(dfa.table, loaded.table, expression);
+			assertArrayEquals(dfa.accept, loaded.accept, expression);
+			NaiveMatcher matcher = NaiveMatcher.parse("abc", expression);
+			for (int n = 0; n < 30; n++) {
+				String input = generator.input(12);
+				assertEquals(matcher.matches(input), loaded.matches(input),
+						"\"" + expression + "\" on \"" + input + "\"");
+			}
+
+			// another expression hashed to the same file is not loaded, and
+			// neither is a corrupt or truncated file
+			assertNull(DFAFile.load(file, "abc", expression + "a"));
+			assertNull(DFAFile.load(file, "abd", expression));
+			RandomAccessFile corrupt = new RandomAccessFile(file, "rw");
+			try {
+				corrupt.seek(corrupt.length() - 4);
+				corrupt.writeInt(dfa.numStates + 1);
+				assertNull(DFAFile.load(file, "abc", expression));
+				corrupt.setLength(corrupt.length() - 4);
+				assertNull(DFAFile.load(file, "abc", expression));
+				corrupt.setLength(0);
+				assertNull(DFAFile.load(file, "abc", expression));
+			} finally {
+				corrupt.close();
+			}
+		}
+		assertNull(DFAFile.load(new File(temp.toFile(), "missing.dfa"),
+				"abc", "a"));
+	}
+
+	@Test
+	void programUsesTheCache() throws Exception {
+		File cache = new File(temp.toFile(), "cache");
+		Expressions generator = new Expressions(11, "ab");
+		List<String> inputs = new ArrayList<String>();
+		for (int n = 0; n < 100; n++) {
+			inputs.add(generator.input(12));
+		}
+		Case c = StreamingTest.naiveCase("cached", "ab", "(a|ba)*b*", inputs);
+		String option = "--dfa-cache=" + cache.getPath();
+		File file = DFAFile.cacheFile(cache.getPath(), c.alphabet,
+				c.expression, true);
+
+		assertEquals(c.output(), c.run(temp.toFile(), option));
+		assertTrue(file.isFile());
+		long modified = file.lastModified();
+		assertEquals(c.output(), c.run(temp.toFile(), option));
+		assertEquals(modified, file.lastModified());
+
+		// a corrupt file is rebuilt
+		RandomAccessFile corrupt = new RandomAccessFile(file, "rw");
+		try {
+			corrupt.setLength(10);
+		} finally {
+			corrupt.close();
+		}
+		assertEquals(c.output(), c.run(temp.toFile(), option));
+		assertNotNull(DFAFile.load(file, c.alphabet, c.expression));
+	}
+}
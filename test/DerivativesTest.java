@@ -0,0 +1,71 @@
+/*
+ * Checks the DFA built from Brzozowski derivatives against NaiveMatcher and
+ * against the minimal DFA of the subset construction
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class DerivativesTest {
+
+	private static DFA derivatives(String alphabet, String expression)
+			throws InvalidExpressionException {
+		return RegularExpressionParser.derivativesDFA(Expressions.parse(
+				alphabet, expression));
+	}
+
+	/*
+	 * Purpose: checks the derivatives DFA of an expression on generated test
+	 * cases, and that it minimizes to the same number of states as the
+	 * subset construction
+	 */
+	private static void check(String alphabet, String expression,
+			Expressions generator, int maxLength) throws Exception {
+		NaiveMatcher naive = NaiveMatcher.parse(alphabet, expression);
+		DFA dfa = derivatives(alphabet, expression);
+		assertNotNull(dfa, expression);
+		DFA minimal = RegularExpressionParser.minimize(dfa);
+		assertEquals(RegularExpressionParser.minimize(
+				Expressions.dfa(alphabet, expression)).numStates,
+				minimal.numStates, expression);
+		for (int n = 0; n < 40; n++) {
+			String input = generator.input(maxLength);
+			boolean expected = naive.matches(input);
+			String message = "\"" + expression + "\" on \"" + input + "\"";
+			assertEquals(expected, dfa.matches(input), message);
+			assertEquals(expected, minimal.matches(input), message);
+		}
+	}
+
+	@Test
+	void derivativesAgreeWithNaiveMatcher() throws Exception {
+		String[] alphabets = { "ab", "abc", "01" };
+		for (int seed = 0; seed < 600; seed++) {
+			String alphabet = alphabets[seed % alphabets.length];
+			Expressions generator = new Expressions(seed, alphabet);
+			check(alphabet, generator.expression(), generator, 12);
+		}
+	}
+
+	@Test
+	void largeExpressions() throws Exception {
+		for (int seed = 0; seed < 40; seed++) {
+			Expressions generator = new Expressions(seed, "abc");
+			check("abc", generator.large(), generator, 40);
+		}
+	}
+
+	@Test
+	void invalidExpressionsThrow() throws Exception {
+		for (Case c : Case.all()) {
+			if (!c.isValid()) {
+				assertThrows(InvalidExpressionException.class,
+						() -> derivatives(c.alphabet, c.expression), c
+								.toString());
+			}
+		}
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Checks the adjacency index and the cached epsilon closures of the NFA
+ * against the edges they are built from
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class EpsilonClosureTest {
+
+	@Test
+	void indexHoldsTheEdges() {
+		for (int seed = 0; seed < 300; seed++) {
+			Expressions generator = new Expressions(seed, "abc");
+			String expression = generator.expression();
+			NFA nfa = Expressions.nfa("abc", expression);
+			nfa.buildIndex();
+			int k = nfa.alphabet.size();
+			for (int q = 0; q < nfa.closure.length; q++) {
+				assertEquals(targets(nfa, q, NFA.EPSILON), sorted(nfa.epsilonEnd,
+						nfa.epsilonStart[q], nfa.epsilonStart[q + 1]), expression);
+				for (int s = 0; s < k; s++) {
+					assertEquals(targets(nfa, q, s), sorted(nfa.symbolEnd,
+							nfa.symbolStart[q * k + s],
+							nfa.symbolStart[q * k + s + 1]), expression);
+				}
+			}
+		}
+	}
+
+	@Test
+	void closuresAreThoseOfASearch() {
+		List<String> expressions = new ArrayList<String>();
+		for (int seed = 0; seed < 300; seed++) {
+			expressions.add(new Expressions(seed, "abc").expression());
+		}
+		// stars of stars, whose epsilon edges form cycles
+		Collections.addAll(expressions, "c**", "(a*)*|b*", "((ab*)*c*)*",
+				"(e*)*", "((a|e)*(b|e)*)*");
+		for (String expression : expressions) {
+			NFA nfa = Expressions.nfa("abc", expression);
+			nfa.buildIndex();
+			for (int q = 0; q < nfa.closure.length; q++) {
+				BitSet expected = new BitSet();
+				List<Integer> stack = new ArrayList<Integer>();
+				expected.set(q);
+				stack.add(Integer.valueOf(q));
+				while (!stack.isEmpty()) {
+					int state = stack.remove(stack.size() - 1).intValue();
+					for (int end : targets(nfa, state, NFA.EPSILON)) {
+						if (!expected.get(end)) {
+							expected.set(end);
+							stack.add(Integer.valueOf(end));
+						}
+					}
+				}
+				assertEquals(expected, nfa.closure[q], "closure of " + q
+						+ " in \"" + expression + "\"");
+			}
+		}
+	}
+
+	private static List<Integer> targets(NFA nfa, int state, int symbol) {
+		List<Integer> targets = new ArrayList<Integer>();
+		for (int i = 0; i < nfa.numEdges; i++) {
+			if (nfa.edgeFrom[i] == state && nfa.edgeSymbol[i] == symbol) {
+				targets.add(Integer.valueOf(nfa.edgeTo[i]));
+			}
+		}
+		Collections.sort(targets);
+		return targets;
+	}
+
+	private static List<Integer> sorted(int[] values, int from, int to) {
+		List<Integer> list = new ArrayList<Integer>();
+		for (int i = from; i < to; i++) {
+			list.add(Integer.valueOf(values[i]));
+		}
+		Collections.sort(list);
+		return list;
+	}
+}
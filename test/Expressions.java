@@ -0,0 +1,162 @@
+/*
+ * Random Regular Expressions and test cases for the tests, and helpers that
+ * build an expression the way the program does
+ */
+
+import java.util.ArrayList;
+import java.util.Random;
+
+class Expressions {
+	private final Random random;
+	private final String alphabet;
+
+	public Expressions(long seed, String alphabet) {
+		this.random = new Random(seed);
+		this.alphabet = alphabet;
+	}
+
+	/*
+	 * Purpose: generates a valid Regular Expression over the alphabet, using
+	 * every operator, 'e' for the empty string and spaces
+	 * 
+	 * @return the text representation of the expression
+	 */
+	public String expression() {
+		return union(0);
+	}
+
+	/*
+	 * Purpose: generates a valid Regular Expression of a few hundred states,
+	 * by concatenating, starring and uniting generated ones
+	 * 
+	 * @return the text representation of the expression
+	 */
+	public String large() {
+		StringBuilder sb = new StringBuilder();
+		for (int n = 0; n < 16; n++) {
+			sb.append(n % 3 == 0 && n > 0 ? "|(" : "(").append(expression())
+					.append(n % 2 == 0 ? ")*" : ")");
+		}
+		return sb.toString();
+	}
+
+	/*
+	 * Purpose: generates an expression that is often invalid, by inserting,
+	 * deleting or replacing an operator of a valid one
+	 * 
+	 * @return the text representation of the expression
+	 */
+	public String mutated() {
+		StringBuilder sb = new StringBuilder(expression());
+		String operators = "()|* ";
+		for (int n = 1 + random.nextInt(2); n > 0; n--) {
+			int i = random.nextInt(sb.length() + 1);
+			char c = operators.charAt(random.nextInt(operators.length()));
+			switch (random.nextInt(3)) {
+			case 0:
+				sb.insert(i, c);
+				break;
+			case 1:
+				if (i < sb.length()) {
+					sb.deleteCharAt(i);
+				}
+				break;
+			default:
+				if (i < sb.length()) {
+					sb.setCharAt(i, c);
+				}
+			}
+		}
+		return sb.toString();
+	}
+
+	/*
+	 * Purpose: generates a test case of alphabet characters, with the odd
+	 * character from outside of the alphabet
+	 * 
+	 * @param maxLength the maximum length of the test case
+	 * 
+	 * @return the test case
+	 */
+	public String input(int maxLength) {
+		StringBuilder sb = new StringBuilder();
+		for (int n = random.nextInt(maxLength + 1); n > 0; n--) {
+			sb.append(random.nextInt(10) == 0 ? 'x' : alphabet.charAt(random
+					.nextInt(alphabet.length())));
+		}
+		return sb.toString();
+	}
+
+	public Random random() {
+		return random;
+	}
+
+	private String union(int depth) {
+		String s = concat(depth);
+		if (depth < 3 && random.nextInt(10) < 3) {
+			return s + (random.nextBoolean() ? "|" : " | ") + union(depth + 1);
+		}
+		return s;
+	}
+
+	private String concat(int depth) {
+		StringBuilder sb = new StringBuilder();
+		for (int n = 1 + random.nextInt(3); n > 0; n--) {
+			sb.append(factor(depth));
+		}
+		return sb.toString();
+	}
+
+	private String factor(int depth) {
+		int r = random.nextInt(100);
+		String s;
+		if (r < 15 && depth < 3) {
+			s = "(" + union(depth + 1) + ")";
+		} else if (r < 22) {
+			s = "e";
+		} else {
+			s = String.valueOf(alphabet.charAt(random.nextInt(alphabet
+					.length())));
+		}
+		return random.nextInt(4) == 0 ? s + "*" : s;
+	}
+
+	/*
+	 * Purpose: builds the Object representation of an expression
+	 * 
+	 * @param alphabet the characters of the alphabet
+	 * 
+	 * @param expression the text representation of the expression
+	 * 
+	 * @return the expression
+	 */
+	public static RegularExpression parse(String alphabet, String expression) {
+		ArrayList<Character> characters = new ArrayList<Character>();
+		for (int i = 0; i < alphabet.length(); i++) {
+			characters.add(Character.valueOf(alphabet.charAt(i)));
+		}
+		return new RegularExpression(characters, expression);
+	}
+
+	/*
+	 * Purpose: builds the NFA of a valid expression
+	 * 
+	 * @return the NFA
+	 */
+	public static NFA nfa(String alphabet, String expression) {
+		try {
+			return RegularExpressionParser.RE2NFA(parse(alphabet, expression));
+		} catch (InvalidExpressionException e) {
+			throw new AssertionError("\"" + expression + "\" rejected", e);
+		}
+	}
+
+	/*
+	 * Purpose: builds the DFA of a valid expression
+	 * 
+	 * @return the DFA
+	 */
+	public static DFA dfa(String alphabet, String expression) {
+		return RegularExpressionParser.NFA2DFA(nfa(alphabet, expression));
+	}
+}
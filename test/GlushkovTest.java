@@ -0,0 +1,54 @@
+/*
+ * Checks the bit-parallel position automaton against NaiveMatcher, and its
+ * limit on the number of positions
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class GlushkovTest {
+
+	private static GlushkovMatcher build(String alphabet, String expression)
+			throws InvalidExpressionException {
+		RegularExpression re = Expressions.parse(alphabet, expression);
+		return GlushkovMatcher.build(RegularExpressionParser
+				.buildSyntaxTree(re), re);
+	}
+
+	@Test
+	void glushkovAgreesWithNaiveMatcher() throws Exception {
+		String[] alphabets = { "ab", "abc", "01" };
+		for (int seed = 0; seed < 600; seed++) {
+			String alphabet = alphabets[seed % alphabets.length];
+			Expressions generator = new Expressions(seed, alphabet);
+			String expression = generator.expression();
+			NaiveMatcher naive = NaiveMatcher.parse(alphabet, expression);
+			GlushkovMatcher matcher = build(alphabet, expression);
+			assertNotNull(matcher, expression);
+			for (int n = 0; n < 40; n++) {
+				String input = generator.input(12);
+				assertEquals(naive.matches(input), matcher.matches(input),
+						"\"" + expression + "\" on \"" + input + "\"");
+			}
+		}
+	}
+
+	@Test
+	void positionsAreLimited() throws Exception {
+		StringBuilder expression = new StringBuilder();
+		for (int n = 0; n < GlushkovMatcher.MAX_POSITIONS; n++) {
+			expression.append(n % 2 == 0 ? "a" : "b*");
+		}
+		GlushkovMatcher matcher = build("ab", expression.toString());
+		assertEquals(GlushkovMatcher.MAX_POSITIONS, matcher.numPositions);
+		assertTrue(matcher.matches(expression.toString().replace("*", "")));
+		assertNull(build("ab", expression + "a"));
+
+		// 'e' holds no position
+		assertEquals(2, build("ab", "(e|a)*e b").numPositions);
+	}
+}
@@ -0,0 +1,41 @@
+/*
+ * Checks the lazy DFA against NaiveMatcher, with a cache large enough for
+ * every state and with one so small that it is flushed all the time and falls
+ * back to stepping the NFA
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LazyDFATest {
+
+	@Test
+	void lazyDFAAgreesWithNaiveMatcher() {
+		String[] alphabets = { "ab", "abc", "01" };
+		int flushes = 0, fallbacks = 0;
+		for (int seed = 0; seed < 600; seed++) {
+			String alphabet = alphabets[seed % alphabets.length];
+			Expressions generator = new Expressions(seed, alphabet);
+			String expression = generator.expression();
+			NaiveMatcher matcher = NaiveMatcher.parse(alphabet, expression);
+			LazyDFA lazy = new LazyDFA(Expressions.nfa(alphabet, expression),
+					10000);
+			LazyDFA thrashing = new LazyDFA(Expressions.nfa(alphabet,
+					expression), 2);
+			for (int n = 0; n < 40; n++) {
+				String input = generator.input(n % 2 == 0 ? 12 : 60);
+				boolean expected = matcher.matches(input);
+				String message = "\"" + expression + "\" on \"" + input + "\"";
+				assertEquals(expected, lazy.matches(input), message);
+				assertEquals(expected, thrashing.matches(input), message);
+			}
+			assertEquals(0, lazy.flushes, expression);
+			flushes += thrashing.flushes;
+			fallbacks += thrashing.fallbacks;
+		}
+		assertTrue(flushes > 0 && fallbacks > 0, flushes + " flushes, "
+				+ fallbacks + " fallbacks");
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Runs the program on memory mapped input files, and checks that its results
+ * are those of the line reader
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedInputTest {
+
+	@TempDir
+	Path temp;
+
+	@Test
+	void manyTestCases() throws Exception {
+		Expressions generator = new Expressions(9, "01");
+		List<String> inputs = new ArrayList<String>();
+		for (int n = 0; n < 50000; n++) {
+			inputs.add(generator.input(n % 1000 == 0 ? 5000 : 16));
+		}
+		Case c = StreamingTest.naiveCase("many", "01", "(0|1(01*0)*1)*",
+				inputs);
+		assertEquals(c.output(), c.run(temp.toFile(), "--mmap"));
+		assertEquals(c.output(), c.run(temp.toFile(), "--mmap", "--flush=5"));
+	}
+
+	@Test
+	void lineEndings() throws Exception {
+		// carriage returns, empty test cases and no final newline
+		for (String text : new String[] {
+				"ab\r\n(ab)*\r\nabab\r\naba\r\n\r\nab",
+				"ab\n(ab)*\nabab\naba\n\nab\n",
+				"ab\n(ab)*\nabab\naba\n\nab\r\n" }) {
+			File in = new File(temp.toFile(), "in.txt");
+			File out = new File(temp.toFile(), "out.txt");
+			FileOutputStream fos = new FileOutputStream(in);
+			try {
+				fos.write(text.getBytes(StandardCharsets.UTF_8));
+			} finally {
+				fos.close();
+			}
+			RegularExpressionParser.main(new String[] { "--mmap",
+					in.getPath(), out.getPath() });
+			assertEquals("true\nfalse\ntrue\ntrue\n", new String(Files
+					.readAllBytes(out.toPath()), StandardCharsets.UTF_8), text);
+		}
+	}
+
+	@Test
+	void onlyTheSequentialDFAEngine() {
+		assertFalse(new Options(new String[] { "--mmap", "--engine=nfa",
+				"in.txt", "out.txt" }).valid);
+		assertFalse(new Options(new String[] { "--mmap", "--threads=2",
+				"in.txt", "out.txt" }).valid);
+	}
+}
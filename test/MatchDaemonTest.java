@@ -0,0 +1,123 @@
+/*
+ * Checks that invalid expressions are reported rather than exiting, and
+ * sends requests to the match daemon, with results from NaiveMatcher
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class MatchDaemonTest {
+
+	@Test
+	void invalidExpressionsAreRejected() throws Exception {
+		for (Case c : Case.all()) {
+			if (!c.isValid()) {
+				assertThrows(InvalidExpressionException.class,
+						() -> RegularExpressionParser.compileDFA(Expressions
+								.parse(c.alphabet, c.expression), true), c
+								.toString());
+			}
+		}
+
+		int invalid = 0;
+		for (int seed = 0; seed < 600; seed++) {
+			Expressions generator = new Expressions(seed, "ab");
+			String expression = generator.mutated();
+			NaiveMatcher matcher = NaiveMatcher.parse("ab", expression);
+			DFA dfa;
+			try {
+				dfa = RegularExpressionParser.compileDFA(Expressions.parse(
+						"ab", expression), true);
+			} catch (InvalidExpressionException e) {
+				assertEquals(null, matcher, "\"" + expression + "\" rejected");
+				invalid++;
+				continue;
+			}
+			assertTrue(matcher != null, "\"" + expression + "\" accepted");
+			for (int n = 0; n < 10; n++) {
+				String input = generator.input(8);
+				assertEquals(matcher.matches(input), RegularExpressionParser
+						.testInput(dfa, input), "\"" + expression + "\" on \""
+						+ input + "\"");
+			}
+		}
+		assertTrue(invalid > 100, invalid + " invalid expressions generated");
+	}
+
+	@Test
+	void daemonAnswersRequests() throws Exception {
+		// a cache of 2 entries, so that requests evict each other
+		final MatchDaemon daemon = new MatchDaemon(0, 2, 1L << 20, true);
+		final ServerSocket server = new ServerSocket(0, 50,
+				InetAddress.getLoopbackAddress());
+		Thread thread = new Thread(() -> {
+			try {
+				daemon.handle(server.accept());
+			} catch (IOException e) {
+			}
+		});
+		thread.start();
+
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), server
+				.getLocalPort());
+		try {
+			Writer out = new OutputStreamWriter(socket.getOutputStream(),
+					StandardCharsets.UTF_8);
+			BufferedReader in = new BufferedReader(new InputStreamReader(
+					socket.getInputStream(), StandardCharsets.UTF_8));
+			for (int seed = 0; seed < 60; seed++) {
+				// a few expressions are repeated, to hit the cache, and the last
+				// ones are over characters that are not ASCII
+				String alphabet = seed < 30 ? "ab" : "\u00e9\u4e2d";
+				Expressions generator = new Expressions(seed % 20, alphabet);
+				String expression = seed % 7 == 3 ? "(a|b" : generator
+						.expression();
+				List<String> inputs = new ArrayList<String>();
+				for (int n = 0; n < 10; n++) {
+					inputs.add(generator.input(10));
+				}
+				out.write(alphabet + "\n" + expression + "\n" + inputs.size()
+						+ "\n");
+				for (String input : inputs) {
+					out.write(input + "\n");
+				}
+				out.flush();
+
+				NaiveMatcher matcher = NaiveMatcher.parse(alphabet, expression);
+				if (matcher == null) {
+					assertEquals(Case.INVALID, in.readLine());
+					continue;
+				}
+				String[] expected = new String[inputs.size()];
+				String[] actual = new String[inputs.size()];
+				for (int n = 0; n < inputs.size(); n++) {
+					expected[n] = String.valueOf(matcher.matches(inputs.get(n)));
+					actual[n] = in.readLine();
+				}
+				assertArrayEquals(expected, actual, expression);
+			}
+		} finally {
+			socket.close();
+			thread.join();
+			server.close();
+		}
+		assertTrue(daemon.hits > 0 && daemon.misses > 0, daemon.hits
+				+ " hits, " + daemon.misses + " misses");
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Runs the program with metrics, and checks the JSON summary, the JMX MBean
+ * and the JFR events of the phases
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MetricsTest {
+
+	@TempDir
+	Path temp;
+
+	static Case generatedCase(long seed) {
+		Expressions generator = new Expressions(seed, "abc");
+		List<String> inputs = new ArrayList<String>();
+		for (int n = 0; n < 500; n++) {
+			inputs.add(generator.input(12));
+		}
+		return StreamingTest.naiveCase("metrics", "abc", "(ab|c)*(a|e)",
+				inputs);
+	}
+
+	@Test
+	void summaryCountsTheTestCases() throws Exception {
+		Case c = generatedCase(13);
+		Path summary = temp.resolve("metrics.json");
+		Metrics metrics = Metrics.global;
+		long testCases = metrics.getTestCases();
+		long accepted = metrics.getAcceptedTestCases();
+		long timed = sum(metrics.getLatencyHistogram());
+
+		assertEquals(c.output(), c.run(temp.toFile(), "--no-dfa-cache",
+				"--metrics=" + summary));
+		assertEquals(testCases + c.inputs.size(), metrics.getTestCases());
+		assertEquals(accepted + c.expected.stream().filter("true"::equals)
+				.count(), metrics.getAcceptedTestCases());
+		assertEquals(timed + c.inputs.size(),
+				sum(metrics.getLatencyHistogram()));
+		assertTrue(metrics.getNfaStates() > 0
+				&& metrics.getMinimalDfaStates() <= metrics.getDfaStates());
+
+		String json = new String(Files.readAllBytes(summary),
+				StandardCharsets.UTF_8);
+		assertTrue(json.contains("\"testCases\": " + metrics.getTestCases()),
+				json);
+		assertTrue(json.contains("\"minimalStates\": "
+				+ metrics.getMinimalDfaStates()), json);
+		for (String phase : Metrics.PHASES) {
+			assertTrue(json.contains("\"" + phase + "\": "), json);
+		}
+	}
+
+	@Test
+	void mbeanPublishesTheMetrics() throws Exception {
+		Case c = generatedCase(14);
+		assertEquals(c.output(), c.run(temp.toFile(), "--jmx"));
+		Object testCases = ManagementFactory.getPlatformMBeanServer()
+				.getAttribute(new ObjectName(
+						"RegularExpressionParser:type=Metrics"), "TestCases");
+		assertEquals(Long.valueOf(Metrics.global.getTestCases()), testCases);
+	}
+
+	@Test
+	void phasesAreRecordedWhileTheFlightRecorderRuns() throws Exception {
+		// the flight recorder is reached reflectively, as the program does
+		Class<?> recordingClass;
+		try {
+			recordingClass = Class.forName("jdk.jfr.Recording");
+		} catch (ClassNotFoundException e) {
+			assertNull(PhaseEvent.start());
+			return;
+		}
+		assertNull(PhaseEvent.start());
+
+		Object recording = recordingClass.getConstructor().newInstance();
+		recordingClass.getMethod("enable", String.class).invoke(recording,
+				"RegularExpressionParser.Phase");
+		recordingClass.getMethod("start").invoke(recording);
+		Case c = generatedCase(15);
+		assertEquals(c.output(), c.run(temp.toFile(), "--no-dfa-cache"));
+		recordingClass.getMethod("stop").invoke(recording);
+		Path file = temp.resolve("run.jfr");
+		recordingClass.getMethod("dump", Path.class).invoke(recording, file);
+		recordingClass.getMethod("close").invoke(recording);
+
+		Set<String> phases = new HashSet<String>();
+		for (Object event : (List<?>) Class.forName(
+				"jdk.jfr.consumer.RecordingFile").getMethod("readAllEvents",
+				Path.class).invoke(null, file)) {
+			Object type = event.getClass().getMethod("getEventType").invoke(
+					event);
+			if (type.getClass().getMethod("getName").invoke(type).equals(
+					"RegularExpressionParser.Phase")) {
+				Method getString = event.getClass().getMethod("getString",
+						String.class);
+				phases.add((String) getString.invoke(event, "phase"));
+			}
+		}
+		assertTrue(phases.containsAll(Arrays.asList("parse", "nfaBuild",
+				"determinize", "minimize", "match")), phases.toString());
+	}
+
+	private static long sum(long[] values) {
+		long sum = 0;
+		for (long value : values) {
+			sum += value;
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Checks that minimization keeps the language of a DFA, and that the minimal
+ * DFA has no unreachable or equivalent states
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class MinimizeTest {
+
+	@Test
+	void minimalDFAAgreesWithNaiveMatcher() {
+		String[] alphabets = { "ab", "abc", "01" };
+		for (int seed = 0; seed < 600; seed++) {
+			String alphabet = alphabets[seed % alphabets.length];
+			Expressions generator = new Expressions(seed, alphabet);
+			String expression = generator.expression();
+			DFA minimal = Expressions.dfa(alphabet, expression).minimize();
+			NaiveMatcher matcher = NaiveMatcher.parse(alphabet, expression);
+			for (int n = 0; n < 40; n++) {
+				String input = generator.input(12);
+				assertEquals(matcher.matches(input), RegularExpressionParser
+						.testInput(minimal, input), "\"" + expression
+						+ "\" on \"" + input + "\"");
+			}
+		}
+	}
+
+	@Test
+	void minimalDFAHasOneStatePerClass() {
+		for (int seed = 0; seed < 300; seed++) {
+			String expression = new Expressions(seed, "abc").expression();
+			DFA dfa = Expressions.dfa("abc", expression);
+			DFA minimal = dfa.minimize();
+			assertEquals(classes(dfa), minimal.numStates, expression);
+			assertEquals(minimal.numStates, classes(minimal), expression);
+			assertTrue(minimal.minimize().numStates == minimal.numStates,
+					expression);
+		}
+	}
+
+	/*
+	 * Purpose: counts the classes of equivalent states reachable from the
+	 * start state, by refining the accepting/rejecting partition until no
+	 * symbol splits a class (Moore's algorithm)
+	 * 
+	 * @return the number of states of the minimal DFA
+	 */
+	private static int classes(DFA dfa) {
+		int k = dfa.alphabet.size();
+		boolean[] reached = new boolean[dfa.numStates + 1];
+		List<Integer> states = new ArrayList<Integer>();
+		reached[dfa.startState] = true;
+		states.add(Integer.valueOf(dfa.startState));
+		for (int i = 0; i < states.size(); i++) {
+			for (int s = 0; s < k; s++) {
+				int next = dfa.table[states.get(i).intValue() * k + s];
+				if (!reached[next]) {
+					reached[next] = true;
+					states.add(Integer.valueOf(next));
+				}
+			}
+		}
+
+		int[] block = new int[dfa.numStates + 1];
+		for (int q = 1; q <= dfa.numStates; q++) {
+			block[q] = dfa.accept[q] ? 1 : 0;
+		}
+		int count = 0;
+		while (true) {
+			List<String> signatures = new ArrayList<String>();
+			int[] refined = new int[dfa.numStates + 1];
+			for (Integer q : states) {
+				StringBuilder sb = new StringBuilder().append(block[q]);
+				for (int s = 0; s < k; s++) {
+					sb.append(',').append(block[dfa.table[q * k + s]]);
+				}
+				int i = signatures.indexOf(sb.toString());
+				if (i < 0) {
+					i = signatures.size();
+					signatures.add(sb.toString());
+				}
+				refined[q] = i;
+			}
+			block = refined;
+			if (signatures.size() == count) {
+				return count;
+			}
+			count = signatures.size();
+		}
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Checks the NFA the arena builds: its size grows linearly with the
+ * expression, deep and long expressions are built without recursion, and it
+ * matches what NaiveMatcher matches
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+class NFAArenaTest {
+
+	/*
+	 * Purpose: runs a test in a thread with a small stack, so that building
+	 * an automaton recursively would overflow it
+	 */
+	private static void inSmallStack(final Runnable test) throws Throwable {
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread thread = new Thread(null, () -> {
+			try {
+				test.run();
+			} catch (Throwable e) {
+				failure.set(e);
+			}
+		}, "small stack", 128 * 1024);
+		thread.start();
+		thread.join();
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+	}
+
+	private static String repeat(String s, int n) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < n; i++) {
+			sb.append(s);
+		}
+		return sb.toString();
+	}
+
+	@Test
+	void longConcatenation() throws Throwable {
+		inSmallStack(() -> {
+			String word = new Expressions(1, "ab").input(20000).replace("x",
+					"");
+			BitNFA nfa = new BitNFA(Expressions.nfa("ab", word));
+			assertTrue(nfa.matches(word));
+			assertTrue(!nfa.matches(word + "a"));
+			assertTrue(!nfa.matches(word.substring(1)));
+		});
+	}
+
+	@Test
+	void deepNesting() throws Throwable {
+		inSmallStack(() -> {
+			// (((a)*b)*b)*b ... nested 3000 deep
+			String expression = repeat("(", 3000) + "a" + repeat(")*b", 3000);
+			BitNFA nfa = new BitNFA(Expressions.nfa("ab", expression));
+			assertTrue(nfa.matches("b") && nfa.matches("ab" + repeat("b", 2999)));
+			assertTrue(!nfa.matches("a") && !nfa.matches("ba"));
+			assertTrue(!nfa.matches(""));
+
+			expression = repeat("(a|", 3000) + "b" + repeat(")", 3000);
+			nfa = new BitNFA(Expressions.nfa("ab", expression));
+			assertTrue(nfa.matches("a") && nfa.matches("b"));
+			assertTrue(!nfa.matches("ab") && !nfa.matches(""));
+
+			// nothing on the way to the minimal DFA recurses either
+			DFA dfa;
+			try {
+				dfa = RegularExpressionParser.compileDFA(Expressions.parse(
+						"ab", expression), true);
+			} catch (InvalidExpressionException e) {
+				throw new AssertionError(e);
+			}
+			assertTrue(dfa.matches("a") && dfa.matches("b"));
+			assertTrue(!dfa.matches("ab") && !dfa.matches(""));
+		});
+	}
+
+	@Test
+	void sizeIsLinear() {
+		for (int seed = 0; seed < 200; seed++) {
+			String expression = new Expressions(seed, "abc").large();
+			NFA nfa = Expressions.nfa("abc", expression);
+			int symbols = expression.length();
+			assertTrue(nfa.numStates <= 2 * symbols + 2, nfa.numStates
+					+ " states for \"" + expression + "\"");
+			assertTrue(nfa.numEdges <= 4 * symbols + 2, nfa.numEdges
+					+ " edges for \"" + expression + "\"");
+		}
+	}
+
+	@Test
+	void nfaAgreesWithNaiveMatcher() {
+		for (int seed = 0; seed < 200; seed++) {
+			Expressions generator = new Expressions(seed, "abc");
+			String expression = generator.large();
+			NaiveMatcher matcher = NaiveMatcher.parse("abc", expression);
+			BitNFA nfa = new BitNFA(Expressions.nfa("abc", expression));
+			for (int n = 0; n < 30; n++) {
+				String input = generator.input(40);
+				assertEquals(matcher.matches(input), nfa.matches(input), "\""
+						+ expression + "\" on \"" + input + "\"");
+			}
+		}
+	}
+}
@@ -0,0 +1,244 @@
+/*
+ * Matches test cases against the text of a Regular Expression directly, with
+ * no automaton, as the reference the tests check the program against.
+ *
+ * The expression is read the way the original program reads it: spaces are
+ * dropped, a concatenation is implied between the characters isValidConcat
+ * accepts, and the operator stack reduces a single pending '*' or
+ * concatenation before a '|' or a concatenation, so that "ab*|c" is
+ * a(b*|c). Test cases are then matched by computing the positions each
+ * subexpression can end at, from the positions it can start at.
+ */
+
+import java.util.BitSet;
+import java.util.EmptyStackException;
+import java.util.Stack;
+
+class NaiveMatcher {
+	private final String alphabet;
+	private final Node root;
+
+	private NaiveMatcher(String alphabet, Node root) {
+		this.alphabet = alphabet;
+		this.root = root;
+	}
+
+	/*
+	 * A subexpression - a symbol, 'e', or one of the operators '@'
+	 * (concatenation, first then second), '|' and '*' (of first)
+	 */
+	private static class Node {
+		final char op;
+		final Node first, second;
+
+		Node(char op, Node first, Node second) {
+			this.op = op;
+			this.first = first;
+			this.second = second;
+		}
+	}
+
+	/*
+	 * Purpose: reads a Regular Expression
+	 * 
+	 * @param alphabet the characters of the alphabet
+	 * 
+	 * @param expression the text representation of the expression
+	 * 
+	 * @return the matcher, or null if the expression is not valid
+	 */
+	public static NaiveMatcher parse(String alphabet, String expression) {
+		String s = expression.replace(" ", "");
+		StringBuilder sb = new StringBuilder("(");
+		char previous = '\0';
+		for (int i = 0; i < s.length(); i++) {
+			char current = s.charAt(i);
+			if (impliesConcat(alphabet, current, previous)) {
+				sb.append('@');
+			}
+			sb.append(current);
+			previous = current;
+		}
+		sb.append(')');
+		try {
+			Node root = build(sb.toString());
+			return root == null ? null : new NaiveMatcher(alphabet, root);
+		} catch (EmptyStackException e) {
+			return null;
+		}
+	}
+
+	private static boolean impliesConcat(String alphabet, char current,
+			char previous) {
+		boolean symbol = alphabet.indexOf(current) >= 0;
+		boolean afterSymbol = alphabet.indexOf(previous) >= 0;
+		if (current == '(') {
+			return previous == ')' || previous == '*' || afterSymbol;
+		}
+		return symbol && (previous == ')' || previous == '*' || afterSymbol);
+	}
+
+	/*
+	 * Purpose: builds the subexpressions of an expression whose
+	 * concatenations are explicit
+	 * 
+	 * @return the root, or null if the expression is not valid
+	 */
+	private static Node build(String s) {
+		Stack<Character> operators = new Stack<Character>();
+		Stack<Node> operands = new Stack<Node>();
+		int parens = 0;
+		boolean afterOperand = true;
+		char top;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '(':
+				operators.push(Character.valueOf(c));
+				parens++;
+				afterOperand = false;
+				break;
+			case ')':
+				if (parens == 0) {
+					return null;
+				}
+				parens--;
+				top = operators.pop().charValue();
+				while (top != '(' && !operators.isEmpty()) {
+					reduce(top, operands);
+					top = operators.pop().charValue();
+				}
+				break;
+			case '*':
+				operators.push(Character.valueOf(c));
+				break;
+			case '|':
+			case '@':
+				if (c == '|' && !afterOperand) {
+					return null;
+				}
+				afterOperand = false;
+				top = operators.peek().charValue();
+				if (top == '*' || top == '@') {
+					operators.pop();
+					reduce(top, operands);
+				}
+				operators.push(Character.valueOf(c));
+				break;
+			default:
+				afterOperand = true;
+				operands.push(new Node(c, null, null));
+			}
+		}
+		if (!operators.isEmpty()) {
+			return null;
+		}
+		return operands.pop();
+	}
+
+	private static void reduce(char op, Stack<Node> operands) {
+		Node a = operands.pop();
+		if (op == '*') {
+			operands.push(new Node('*', a, null));
+		} else {
+			operands.push(new Node(op, operands.pop(), a));
+		}
+	}
+
+	/*
+	 * Purpose: tests a test case, skipping the characters that are not in the
+	 * alphabet as the program does
+	 * 
+	 * @param input the test case
+	 * 
+	 * @return true if the test case is in the language of the expression
+	 */
+	public boolean matches(String input) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < input.length(); i++) {
+			if (alphabet.indexOf(input.charAt(i)) >= 0) {
+				sb.append(input.charAt(i));
+			}
+		}
+		String s = sb.toString();
+		BitSet start = new BitSet();
+		start.set(0);
+		return ends(root, s, start).get(s.length());
+	}
+
+	/*
+	 * Purpose: finds the leftmost-longest matches in a text, the way Searcher
+	 * reports them - matches do not overlap, are not empty, and contain no
+	 * character outside of the alphabet
+	 * 
+	 * @param text the text to be searched
+	 * 
+	 * @return the spans of the matches, one "start end" line per match
+	 */
+	public String search(String text) {
+		StringBuilder sb = new StringBuilder();
+		int start = 0;
+		while (start < text.length()) {
+			int run = start;
+			while (run < text.length()
+					&& alphabet.indexOf(text.charAt(run)) >= 0) {
+				run++;
+			}
+			BitSet origin = new BitSet();
+			origin.set(0);
+			BitSet ends = ends(root, text.substring(start, run), origin);
+			int end = ends.length() - 1;
+			if (end > 0) {
+				sb.append(start).append(' ').append(start + end).append('\n');
+				start += end;
+			} else {
+				start++;
+			}
+		}
+		return sb.toString();
+	}
+
+	/*
+	 * Purpose: finds the positions a subexpression can end at
+	 * 
+	 * @param node the subexpression
+	 * 
+	 * @param s the test case
+	 * 
+	 * @param starts the positions it can start at
+	 * 
+	 * @return the positions it can end at
+	 */
+	private static BitSet ends(Node node, String s, BitSet starts) {
+		BitSet result;
+		switch (node.op) {
+		case '@':
+			return ends(node.second, s, ends(node.first, s, starts));
+		case '|':
+			result = ends(node.first, s, starts);
+			result.or(ends(node.second, s, starts));
+			return result;
+		case '*':
+			result = (BitSet) starts.clone();
+			BitSet frontier = starts;
+			while (!frontier.isEmpty()) {
+				BitSet next = ends(node.first, s, frontier);
+				next.andNot(result);
+				result.or(next);
+				frontier = next;
+			}
+			return result;
+		case 'e':
+			return (BitSet) starts.clone();
+		default:
+			result = new BitSet();
+			for (int i = starts.nextSetBit(0); i >= 0 && i < s.length(); i = starts
+					.nextSetBit(i + 1)) {
+				if (s.charAt(i) == node.op) {
+					result.set(i + 1);
+				}
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,47 @@
+/*
+ * Runs the program with worker threads on an input file of many test cases,
+ * and checks that the results are written in input order
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ParallelTest {
+
+	@TempDir
+	Path temp;
+
+	@Test
+	void resultsAreInInputOrder() throws Exception {
+		Expressions generator = new Expressions(8, "abc");
+		List<String> inputs = new ArrayList<String>();
+		for (int n = 0; n < 50000; n++) {
+			// lengths vary a lot, so that batches finish out of order
+			inputs.add(generator.input(n % 100 == 0 ? 2000 : 10));
+		}
+		Case c = StreamingTest.naiveCase("many", "abc", "(a|bc)*c*(e|b)",
+				inputs);
+		for (String[] options : new String[][] {
+				{ "--threads=4", "--batch=7" },
+				{ "--threads=3", "--batch=1", "--engine=nfa" },
+				{ "--threads=2", "--virtual-threads", "--flush=3" },
+				{ "--threads=1", "--batch=100000" } }) {
+			assertEquals(c.output(), c.run(temp.toFile(), options), Arrays
+					.toString(options));
+		}
+	}
+
+	@Test
+	void lazyEngineIsNotShared() {
+		assertFalse(new Options(new String[] { "--engine=lazy", "--threads=2",
+				"in.txt", "out.txt" }).valid);
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Checks the combined DFA of a set of expressions against NaiveMatcher on
+ * each expression, through the API and through the program's --patterns
+ * option
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PatternSetTest {
+
+	@TempDir
+	Path temp;
+
+	/*
+	 * Purpose: lists the expressions of a set that match a test case
+	 * 
+	 * @return the line of the output file for the test case
+	 */
+	private static String matching(NaiveMatcher[] matchers, String input) {
+		List<String> indexes = new ArrayList<String>();
+		for (int i = 0; i < matchers.length; i++) {
+			if (matchers[i].matches(input)) {
+				indexes.add(Integer.toString(i));
+			}
+		}
+		return String.join(" ", indexes);
+	}
+
+	@Test
+	void setAgreesWithEachExpression() throws Exception {
+		for (int seed = 0; seed < 200; seed++) {
+			Expressions generator = new Expressions(seed, "abc");
+			String[] expressions = new String[1 + seed % 5];
+			NaiveMatcher[] matchers = new NaiveMatcher[expressions.length];
+			for (int i = 0; i < expressions.length; i++) {
+				expressions[i] = generator.expression();
+				matchers[i] = NaiveMatcher.parse("abc", expressions[i]);
+			}
+			PatternSet set = PatternSet.compile("abc", expressions);
+			assertEquals(expressions.length, set.size());
+			for (int n = 0; n < 30; n++) {
+				String input = generator.input(10);
+				String expected = matching(matchers, input);
+				int[] actual = set.matchAll(input);
+				StringBuilder sb = new StringBuilder();
+				for (int i = 0; i < actual.length; i++) {
+					sb.append(i > 0 ? " " : "").append(actual[i]);
+				}
+				assertEquals(expected, sb.toString(), String.join(", ",
+						expressions) + " on \"" + input + "\"");
+				assertEquals(!expected.isEmpty(), set.matches(input));
+			}
+		}
+	}
+
+	@Test
+	void anyInvalidExpressionIsRejected() throws Exception {
+		for (Case c : Case.all()) {
+			if (!c.isValid()) {
+				assertThrows(InvalidExpressionException.class,
+						() -> PatternSet.compile(c.alphabet, "a", c.expression),
+						c.toString());
+			}
+		}
+	}
+
+	@Test
+	void programPrintsTheMatchingExpressions() throws Exception {
+		for (int seed = 0; seed < 30; seed++) {
+			Expressions generator = new Expressions(seed, "ab");
+			String[] expressions = new String[3];
+			NaiveMatcher[] matchers = new NaiveMatcher[3];
+			StringBuilder input = new StringBuilder("ab\n");
+			for (int i = 0; i < 3; i++) {
+				expressions[i] = generator.expression();
+				matchers[i] = NaiveMatcher.parse("ab", expressions[i]);
+				input.append(expressions[i]).append('\n');
+			}
+			StringBuilder expected = new StringBuilder();
+			for (int n = 0; n < 20; n++) {
+				String test = generator.input(10);
+				input.append(test).append('\n');
+				expected.append(matching(matchers, test)).append('\n');
+			}
+
+			File in = temp.resolve("set" + seed + "In.txt").toFile();
+			File out = temp.resolve("set" + seed + "Out.txt").toFile();
+			PrintWriter pw = new PrintWriter(in, "UTF-8");
+			try {
+				pw.print(input);
+			} finally {
+				pw.close();
+			}
+			RegularExpressionParser.main(new String[] { "--patterns=3",
+					in.getPath(), out.getPath() });
+			assertEquals(expected.toString(), new String(Files
+					.readAllBytes(out.toPath()), StandardCharsets.UTF_8),
+					String.join(", ", expressions));
+		}
+	}
+}
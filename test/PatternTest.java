@@ -0,0 +1,80 @@
+/*
+ * Checks Pattern against NaiveMatcher, on every kind of input and from
+ * several threads at once
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class PatternTest {
+
+	@Test
+	void patternAgreesWithNaiveMatcher() throws Exception {
+		for (int seed = 0; seed < 300; seed++) {
+			Expressions generator = new Expressions(seed, "ab");
+			String expression = generator.expression();
+			NaiveMatcher matcher = NaiveMatcher.parse("ab", expression);
+			Pattern pattern = Pattern.compile("ab", expression);
+			for (int n = 0; n < 30; n++) {
+				String input = generator.input(20);
+				boolean expected = matcher.matches(input);
+				String message = "\"" + expression + "\" on \"" + input + "\"";
+				assertEquals(expected, pattern.matches(input), message);
+				assertEquals(expected, pattern.matches(new StringBuilder(
+						input)), message);
+				byte[] bytes = ("xy" + input + "z")
+						.getBytes(StandardCharsets.ISO_8859_1);
+				assertEquals(expected, pattern.matches(bytes, 2, input
+						.length()), message);
+			}
+		}
+	}
+
+	@Test
+	void invalidExpressionsThrow() throws Exception {
+		for (Case c : Case.all()) {
+			if (!c.isValid()) {
+				assertThrows(InvalidExpressionException.class, () -> Pattern
+						.compile(c.alphabet, c.expression), c.toString());
+			}
+		}
+	}
+
+	@Test
+	void compileAndMatchFromManyThreads() throws Exception {
+		ExecutorService workers = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> results = new ArrayList<Future<?>>();
+			for (int t = 0; t < 32; t++) {
+				final long seed = t % 8;
+				results.add(workers.submit(() -> {
+					Expressions generator = new Expressions(seed, "abc");
+					String expression = generator.expression();
+					NaiveMatcher matcher = NaiveMatcher.parse("abc",
+							expression);
+					Pattern pattern = Pattern.compile("abc", expression);
+					for (int n = 0; n < 2000; n++) {
+						String input = generator.input(16);
+						assertEquals(matcher.matches(input), pattern
+								.matches(input), expression);
+					}
+					return null;
+				}));
+			}
+			for (Future<?> result : results) {
+				result.get();
+			}
+		} finally {
+			workers.shutdown();
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Checks that the prefilter of an expression never rejects a test case
+ * NaiveMatcher accepts, and that it is only built when a literal is
+ * required
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class PrefilterTest {
+
+	@Test
+	void prefilterNeverRejectsAMatch() {
+		int wrapped = 0;
+		for (int seed = 0; seed < 400; seed++) {
+			Expressions generator = new Expressions(seed, "abc");
+			String expression = generator.expression();
+			NaiveMatcher naive = NaiveMatcher.parse("abc", expression);
+			Matcher matcher = Prefilter.wrap(Expressions.dfa("abc",
+					expression), Expressions.parse("abc", expression));
+			if (!(matcher instanceof Prefilter)) {
+				continue;
+			}
+			wrapped++;
+			Prefilter prefilter = (Prefilter) matcher;
+			for (int n = 0; n < 40; n++) {
+				String input = generator.input(12);
+				boolean expected = naive.matches(input);
+				assertTrue(!expected || prefilter.mayMatch(input), prefilter
+						+ " rejects \"" + input + "\" of \"" + expression
+						+ "\"");
+				assertEquals(expected, prefilter.matches(input));
+			}
+		}
+		assertTrue(wrapped > 50, wrapped + " expressions prefiltered");
+	}
+
+	@Test
+	void onlyRequiredLiteralsAreKept() {
+		DFA dfa = Expressions.dfa("abc", "(a|b)*");
+		assertSame(dfa, Prefilter.wrap(dfa, Expressions.parse("abc",
+				"(a|b)*")));
+
+		Prefilter prefilter = (Prefilter) Prefilter.wrap(Expressions.dfa(
+				"abc", "ab(a|b)*c"), Expressions.parse("abc", "ab(a|b)*c"));
+		for (String prefix : prefilter.prefixes) {
+			assertTrue(prefix.startsWith("ab"), prefilter.toString());
+		}
+		for (String suffix : prefilter.suffixes) {
+			assertTrue(suffix.endsWith("c"), prefilter.toString());
+		}
+		assertTrue(prefilter.mayMatch("abx c") && prefilter.matches("abx c"));
+		assertTrue(!prefilter.mayMatch("bac") && !prefilter.mayMatch("ab"));
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Runs the program on the cases of res/ and test/corpus.txt and compares its
+ * output with the output the original program wrote, and checks NaiveMatcher,
+ * the reference of the other tests, against the same cases
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProgramTest {
+
+	@TempDir
+	Path temp;
+
+	// the options of each engine and mode of the program, all of which must
+	// write the output of the original program
+	static final String[][] OPTIONS = { {}, { "--no-minimize" },
+			{ "--engine=lazy" }, { "--engine=lazy", "--lazy-cache=2" },
+			{ "--engine=nfa" }, { "--flush=1" },
+			{ "--threads=3", "--batch=2" }, { "--mmap" },
+			{ "--no-dfa-cache" }, { "--no-minimize", "--no-prefilter" },
+			{ "--engine=glushkov" }, { "--derivatives" },
+			{ "--engine=bytecode" } };
+
+	@Test
+	void resCases() throws Exception {
+		for (String[] options : OPTIONS) {
+			for (Case c : Case.res()) {
+				assertEquals(c.output(), c.run(temp.toFile(), options), c
+						+ " with " + Arrays.toString(options));
+			}
+		}
+	}
+
+	@Test
+	void corpusCases() throws Exception {
+		for (String[] options : OPTIONS) {
+			for (Case c : Case.corpus()) {
+				// the invalid cases each need a JVM of their own, see
+				// naiveMatcherAgreesWithTheOriginalProgram for their validity
+				if (c.isValid()) {
+					assertEquals(c.output(), c.run(temp.toFile(), options), c
+							+ " with " + Arrays.toString(options));
+				}
+			}
+		}
+	}
+
+	@Test
+	void naiveMatcherAgreesWithTheOriginalProgram() throws Exception {
+		for (Case c : Case.all()) {
+			NaiveMatcher matcher = NaiveMatcher.parse(c.alphabet, c.expression);
+			if (!c.isValid()) {
+				assertNull(matcher, c.toString());
+				continue;
+			}
+			assertNotNull(matcher, c.toString());
+			for (int i = 0; i < c.inputs.size(); i++) {
+				assertEquals(c.expected.get(i), String.valueOf(matcher
+						.matches(c.inputs.get(i))), c + " on \""
+						+ c.inputs.get(i) + "\"");
+			}
+		}
+	}
+}
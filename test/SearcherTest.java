@@ -0,0 +1,145 @@
+/*
+ * Checks the leftmost-longest matches Searcher finds against those of
+ * NaiveMatcher, through the API and through the program's --search option
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SearcherTest {
+
+	@TempDir
+	Path temp;
+
+	private static String text(Expressions generator) {
+		StringBuilder text = new StringBuilder();
+		for (int n = 0; n < 5; n++) {
+			text.append(generator.input(15)).append('\n');
+		}
+		return text.toString();
+	}
+
+	@Test
+	void searcherAgreesWithNaiveMatcher() throws Exception {
+		for (int seed = 0; seed < 300; seed++) {
+			Expressions generator = new Expressions(seed, "ab");
+			String expression = generator.expression();
+			String text = text(generator);
+
+			// the state cache is kept small, so that it is flushed while
+			// searching
+			Searcher searcher = new Searcher(RegularExpressionParser
+					.compileDFA(Expressions.parse("ab", expression), true), 8);
+			StringWriter out = new StringWriter();
+			searcher.search(new StringReader(text), out);
+			assertEquals(NaiveMatcher.parse("ab", expression).search(text), out
+					.toString(), "\"" + expression + "\" in \"" + text + "\"");
+		}
+	}
+
+	/*
+	 * Purpose: reads a text in small chunks, as a socket or a pipe would
+	 * 
+	 * @param text the text to be read
+	 * 
+	 * @return the reader
+	 */
+	private static Reader chunked(final String text) {
+		return new Reader() {
+			int offset = 0;
+
+			@Override
+			public int read(char[] buffer, int off, int len) {
+				if (offset == text.length()) {
+					return -1;
+				}
+				int n = Math.min(Math.min(len, 1000), text.length() - offset);
+				text.getChars(offset, offset + n, buffer, off);
+				offset += n;
+				return n;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+	}
+
+	private static String repeat(String s, int n) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < n; i++) {
+			sb.append(s);
+		}
+		return sb.toString();
+	}
+
+	private static String search(String expression, String text, int window)
+			throws Exception {
+		Searcher searcher = new Searcher(RegularExpressionParser.compileDFA(
+				Expressions.parse("abc", expression), true), 8);
+		StringWriter out = new StringWriter();
+		searcher.search(chunked(text), out);
+		assertTrue(searcher.window <= window, searcher.window
+				+ " characters buffered");
+		return out.toString();
+	}
+
+	@Test
+	void matchesLongerThanTheBuffer() throws Exception {
+		int size = RegularExpressionParser.BUFFER_SIZE;
+		String match = "a" + repeat("ab", 3 * size) + "c";
+		String text = "xx" + match + "x" + "ac";
+		int end = 2 + match.length();
+		assertEquals("2 " + end + "\n" + (end + 1) + " " + (end + 3) + "\n",
+				search("a(a|b)*c", text, 8 * size));
+	}
+
+	@Test
+	void threadsThatDieDoNotGrowTheBuffer() throws Exception {
+		// a thread starts at every 'a' and dies four characters later, so
+		// some thread is always alive
+		int size = RegularExpressionParser.BUFFER_SIZE;
+		String text = repeat("a", 10 * size) + "b" + repeat("ab", size);
+		int end = 10 * size + 1;
+		assertEquals((end - 6) + " " + end + "\n", search("aaaaab", text,
+				size));
+		assertEquals((end - 4) + " " + end + "\n", search("aaab|ab*c",
+				text, size));
+	}
+
+	@Test
+	void programSearchesTheText() throws Exception {
+		for (int seed = 0; seed < 40; seed++) {
+			Expressions generator = new Expressions(seed, "abc");
+			String expression = generator.expression();
+			String text = text(generator);
+			File in = temp.resolve("search" + seed + "In.txt").toFile();
+			File out = temp.resolve("search" + seed + "Out.txt").toFile();
+			PrintWriter pw = new PrintWriter(in, "UTF-8");
+			try {
+				pw.print("abc\n" + expression + "\n" + text);
+			} finally {
+				pw.close();
+			}
+			RegularExpressionParser.main(new String[] { "--search",
+					"--lazy-cache=4", "--no-dfa-cache", in.getPath(),
+					out.getPath() });
+			assertEquals(NaiveMatcher.parse("abc", expression).search(text),
+					new String(Files.readAllBytes(out.toPath()),
+							StandardCharsets.UTF_8), "\"" + expression
+							+ "\" in \"" + text + "\"");
+		}
+	}
+}
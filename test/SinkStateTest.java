@@ -0,0 +1,93 @@
+/*
+ * Checks the dead and universal states of DFAs against a forward search from
+ * each state, and that stopping early in them does not change any result
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class SinkStateTest {
+
+	/*
+	 * Purpose: tests if a state of a DFA can reach a state with the given
+	 * acceptance, by a depth first search forward from it
+	 */
+	private static boolean reaches(DFA dfa, int from, boolean accepting) {
+		int k = dfa.alphabet.size();
+		boolean[] seen = new boolean[dfa.numStates + 1];
+		int[] stack = new int[dfa.numStates + 1];
+		int size = 0;
+		stack[size++] = from;
+		seen[from] = true;
+		while (size > 0) {
+			int q = stack[--size];
+			if (dfa.accept[q] == accepting) {
+				return true;
+			}
+			for (int a = 0; q > 0 && a < k; a++) {
+				int target = dfa.table[q * k + a];
+				if (!seen[target]) {
+					seen[target] = true;
+					stack[size++] = target;
+				}
+			}
+		}
+		return false;
+	}
+
+	@Test
+	void sinksAreThoseOfASearch() {
+		for (int seed = 0; seed < 300; seed++) {
+			String expression = new Expressions(seed, "abc").expression();
+			DFA full = Expressions.dfa("abc", expression);
+			for (DFA dfa : new DFA[] { full,
+					RegularExpressionParser.minimize(full) }) {
+				for (int q = 1; q <= dfa.numStates; q++) {
+					String message = "state " + q + " of \"" + expression + "\"";
+					assertEquals(!reaches(dfa, q, true), dfa.dead[q], message);
+					assertEquals(!reaches(dfa, q, false), dfa.universal[q],
+							message);
+					assertEquals(dfa.dead[q] || dfa.universal[q],
+							dfa.absorbing[q], message);
+				}
+			}
+		}
+	}
+
+	@Test
+	void stoppingEarlyKeepsTheResults() throws Exception {
+		for (int seed = 0; seed < 300; seed++) {
+			Expressions generator = new Expressions(seed, "ab");
+			String expression = seed % 3 == 0 ? "a(a|b)*" : seed % 3 == 1 ? "b"
+					+ generator.expression() : generator.expression();
+			NaiveMatcher naive = NaiveMatcher.parse("ab", expression);
+			DFA dfa = RegularExpressionParser.minimize(Expressions.dfa("ab",
+					expression));
+			Pattern pattern = Pattern.compile("ab", expression);
+			for (int n = 0; n < 30; n++) {
+				String input = generator.input(40);
+				boolean expected = naive.matches(input);
+				String message = "\"" + expression + "\" on \"" + input + "\"";
+				assertEquals(expected, RegularExpressionParser.testInput(dfa,
+						input), message);
+				assertEquals(expected, pattern.matches(input), message);
+			}
+		}
+	}
+
+	@Test
+	void absorbingStartStates() throws Exception {
+		// "(a|b)*" accepts everything, and no test case starting with "b"
+		// matches "aa"
+		DFA all = RegularExpressionParser.minimize(Expressions.dfa("ab",
+				"(a|b)*"));
+		assertTrue(all.universal[all.startState]);
+		DFA dfa = RegularExpressionParser.minimize(Expressions.dfa("ab",
+				"aa"));
+		int k = dfa.alphabet.size();
+		int q = dfa.table[dfa.startState * k + dfa.symbolIndex['b']];
+		assertTrue(dfa.dead[q] && !dfa.universal[q]);
+	}
+}
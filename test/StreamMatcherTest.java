@@ -0,0 +1,95 @@
+/*
+ * Checks incremental matching against NaiveMatcher, whatever the chunks the
+ * test case is fed in and whatever their form
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class StreamMatcherTest {
+
+	@Test
+	void streamMatcherAgreesForAnyChunking() throws Exception {
+		for (int seed = 0; seed < 300; seed++) {
+			Expressions generator = new Expressions(seed, "ab");
+			String expression = generator.expression();
+			NaiveMatcher naive = NaiveMatcher.parse("ab", expression);
+			StreamMatcher stream = Pattern.compile("ab", expression)
+					.streamMatcher();
+			Random random = generator.random();
+			for (int n = 0; n < 20; n++) {
+				String input = generator.input(30);
+				boolean expected = naive.matches(input);
+				byte[] bytes = input.getBytes(StandardCharsets.ISO_8859_1);
+				for (int mode = 0; mode < 5; mode++) {
+					stream.reset();
+					for (int i = 0; i < input.length();) {
+						int end = Math.min(input.length(), i
+								+ random.nextInt(5));
+						String chunk = input.substring(i, end);
+						switch (mode) {
+						case 0:
+							stream.feed(chunk);
+							break;
+						case 1:
+							stream.feed(input.toCharArray(), i, end - i);
+							break;
+						case 2:
+							stream.feed(CharBuffer.wrap(chunk));
+							break;
+						case 3:
+							// a read only buffer has no accessible array
+							stream.feed(CharBuffer.wrap(chunk)
+									.asReadOnlyBuffer());
+							break;
+						default:
+							stream.feed(ByteBuffer.wrap(bytes, i, end - i));
+						}
+						if (stream.isDecided()) {
+							break;
+						}
+						i = end;
+					}
+					assertEquals(expected, stream.isAccepting(), "\""
+							+ expression + "\" on \"" + input + "\", mode "
+							+ mode);
+				}
+			}
+		}
+	}
+
+	@Test
+	void decidedOnceAbsorbed() {
+		StreamMatcher stream = new StreamMatcher(RegularExpressionParser
+				.minimize(Expressions.dfa("ab", "a(a|b)*")));
+		stream.feed("b");
+		assertTrue(stream.isDecided() && !stream.isAccepting());
+		stream.reset();
+		assertTrue(!stream.isDecided() && !stream.isAccepting());
+		stream.feed("a");
+		assertTrue(stream.isDecided() && stream.isAccepting());
+		stream.feed("bbx");
+		assertTrue(stream.isAccepting());
+	}
+
+	@Test
+	void buffersAreConsumed() {
+		StreamMatcher stream = new StreamMatcher(Expressions.dfa("ab",
+				"(ab)*"));
+		CharBuffer chars = CharBuffer.wrap("abab");
+		stream.feed(chars);
+		assertEquals(0, chars.remaining());
+		ByteBuffer bytes = ByteBuffer.wrap("xaby".getBytes(
+				StandardCharsets.ISO_8859_1), 1, 2);
+		stream.feed(bytes);
+		assertEquals(0, bytes.remaining());
+		assertTrue(stream.isAccepting());
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Runs the program on input files of many test cases, and on input files
+ * with empty test cases, no test case or no final newline, with results
+ * from NaiveMatcher
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StreamingTest {
+
+	@TempDir
+	Path temp;
+
+	/*
+	 * Purpose: builds a case whose expected results are those of
+	 * NaiveMatcher
+	 */
+	static Case naiveCase(String name, String alphabet, String expression,
+			List<String> inputs) {
+		NaiveMatcher matcher = NaiveMatcher.parse(alphabet, expression);
+		List<String> expected = new ArrayList<String>();
+		for (String input : inputs) {
+			expected.add(String.valueOf(matcher.matches(input)));
+		}
+		return new Case(name, alphabet, expression, inputs, expected);
+	}
+
+	@Test
+	void manyTestCases() throws Exception {
+		Expressions generator = new Expressions(7, "ab");
+		List<String> inputs = new ArrayList<String>();
+		for (int n = 0; n < 100000; n++) {
+			inputs.add(generator.input(20));
+		}
+		Case c = naiveCase("many", "ab", "(a|b)*abb(a|b)*|b*", inputs);
+		for (String[] options : new String[][] { {}, { "--flush=1" },
+				{ "--flush=777" } }) {
+			assertEquals(c.output(), c.run(temp.toFile(), options), Arrays
+					.toString(options));
+		}
+	}
+
+	@Test
+	void emptyTestCases() throws Exception {
+		Case c = naiveCase("empty", "ab", "a*", Arrays.asList("", "a", "",
+				"", "b", ""));
+		assertEquals(c.output(), c.run(temp.toFile()));
+		c = naiveCase("none", "ab", "a*", new ArrayList<String>());
+		assertEquals("", c.run(temp.toFile()));
+	}
+
+	@Test
+	void noFinalNewline() throws Exception {
+		File in = new File(temp.toFile(), "in.txt");
+		File out = new File(temp.toFile(), "out.txt");
+		FileOutputStream fos = new FileOutputStream(in);
+		try {
+			fos.write("ab\r\n(ab)*\r\nabab\r\naba\r\n\r\nab".getBytes(
+					StandardCharsets.UTF_8));
+		} finally {
+			fos.close();
+		}
+		RegularExpressionParser.main(new String[] { in.getPath(),
+				out.getPath() });
+		assertEquals("true\nfalse\ntrue\ntrue\n", new String(Files
+				.readAllBytes(out.toPath()), StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Checks the DFA of the subset construction against NaiveMatcher, on
+ * generated expressions and on nested stars, which the original construction
+ * looped on
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class SubsetConstructionTest {
+
+	/*
+	 * Purpose: checks that the DFA of an expression agrees with NaiveMatcher
+	 * on a set of test cases
+	 */
+	static void assertAgree(String alphabet, String expression,
+			List<String> inputs) {
+		DFA dfa = Expressions.dfa(alphabet, expression);
+		NaiveMatcher matcher = NaiveMatcher.parse(alphabet, expression);
+		for (String input : inputs) {
+			assertEquals(matcher.matches(input), RegularExpressionParser
+					.testInput(dfa, input), "\"" + expression + "\" on \""
+					+ input + "\"");
+		}
+	}
+
+	@Test
+	void generatedExpressions() {
+		String[] alphabets = { "ab", "abc", "01" };
+		for (int seed = 0; seed < 600; seed++) {
+			String alphabet = alphabets[seed % alphabets.length];
+			Expressions generator = new Expressions(seed, alphabet);
+			String expression = generator.expression();
+			List<String> inputs = new ArrayList<String>();
+			for (int n = 0; n < 40; n++) {
+				inputs.add(generator.input(12));
+			}
+			assertAgree(alphabet, expression, inputs);
+		}
+	}
+
+	@Test
+	void nestedStars() {
+		final List<String> inputs = new ArrayList<String>();
+		Expressions generator = new Expressions(0, "abc");
+		for (int n = 0; n < 40; n++) {
+			inputs.add(generator.input(10));
+		}
+		for (final String expression : new String[] { "c**", "(a*)*|b*",
+				"((ab*)*c*)*", "a(b(c*)*)*", "(e*)*", "((a|e)*b*)*" }) {
+			assertTimeoutPreemptively(Duration.ofSeconds(10),
+					() -> assertAgree("abc", expression, inputs), expression);
+		}
+	}
+
+	@Test
+	void statesAreReachableAndComplete() {
+		for (int seed = 0; seed < 200; seed++) {
+			Expressions generator = new Expressions(seed, "abc");
+			String expression = generator.expression();
+			DFA dfa = Expressions.dfa("abc", expression);
+			assertEquals(dfa.numStates * dfa.alphabet.size(),
+					dfa.transitionFunction.size());
+			boolean[] reached = new boolean[dfa.numStates + 1];
+			reached[dfa.startState] = true;
+			for (boolean changed = true; changed;) {
+				changed = false;
+				for (Transition t : dfa.transitionFunction) {
+					if (reached[t.start] && !reached[t.end]) {
+						reached[t.end] = changed = true;
+					}
+				}
+			}
+			for (int q = 1; q <= dfa.numStates; q++) {
+				assertEquals(true, reached[q], "state " + q + " of \""
+						+ expression + "\"");
+			}
+		}
+	}
+
+	@Test
+	void subsetsOfTheStates() {
+		for (int seed = 0; seed < 200; seed++) {
+			String expression = new Expressions(seed, "abc").expression();
+			NFA nfa = Expressions.nfa("abc", expression);
+			ArrayList<BitSet> subsets = new ArrayList<BitSet>();
+			DFA dfa = RegularExpressionParser.subsetConstruction(nfa, subsets);
+			assertEquals(dfa.numStates, subsets.size(), expression);
+			assertEquals(dfa.numStates, new HashSet<BitSet>(subsets).size(),
+					expression);
+			int k = dfa.alphabet.size();
+			for (int q = 1; q <= dfa.numStates; q++) {
+				for (int s = 0; s < k; s++) {
+					assertEquals(RegularExpressionParser.computeSubset(subsets
+							.get(q - 1), nfa, s), subsets.get(dfa.table[q * k
+							+ s] - 1), expression);
+				}
+			}
+		}
+	}
+}
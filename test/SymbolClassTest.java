@@ -0,0 +1,132 @@
+/*
+ * Checks the symbol classes of an expression, and the automata labelled by
+ * them, against NaiveMatcher over an alphabet larger than the expression
+ * uses
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class SymbolClassTest {
+	// the test cases are generated over all of ALPHABET, the expressions
+	// over some of it, and 'x' is outside of it
+	public static final String ALPHABET = "abcdfgh";
+
+	// unions of symbols, for expressions in which some characters can only
+	// be told apart from some others
+	private static final String[] UNIONS = { "(a|b)", "(b | a)", "(c|d)",
+			"(a|b|c)", "f", "(f|g)", "(d|c|h)" };
+
+	/*
+	 * Purpose: generates an expression over "abc", or one made of UNIONS
+	 * 
+	 * @param seed the seed of the expression
+	 * 
+	 * @return the text representation of the expression
+	 */
+	private static String expression(int seed) {
+		if (seed % 2 == 0) {
+			return new Expressions(seed, "abc").expression();
+		}
+		Random random = new Random(seed);
+		StringBuilder sb = new StringBuilder();
+		for (int n = 1 + random.nextInt(4); n > 0; n--) {
+			sb.append(UNIONS[random.nextInt(UNIONS.length)]);
+			if (random.nextInt(3) == 0) {
+				sb.append('*');
+			}
+			if (n > 1 && random.nextInt(4) == 0) {
+				sb.append('|');
+			}
+		}
+		return sb.toString();
+	}
+
+	private static int[] classes(String expression) {
+		RegularExpression re = Expressions.parse(ALPHABET, expression);
+		re.buildSymbolClasses();
+		return re.symbolIndex;
+	}
+
+	@Test
+	void unionsOfSymbolsShareAClass() {
+		int[] classes = classes("(a|b)*c");
+		assertEquals(classes['a'], classes['b']);
+		assertTrue(classes['a'] != classes['c']);
+		assertEquals(classes['d'], classes['h']);
+		assertTrue(classes['d'] != classes['a'] && classes['d'] != classes['c']);
+
+		classes = classes("(a | b)(b|a) | c|d");
+		assertEquals(classes['a'], classes['b']);
+		classes = classes("a|b");
+		assertEquals(classes['a'], classes['b']);
+		classes = classes("(a|b)*a");
+		assertTrue(classes['a'] != classes['b']);
+		classes = classes("(a|b)(a|c)");
+		assertTrue(classes['a'] != classes['b'] && classes['b'] != classes['c']);
+		classes = classes("(a|b*)");
+		assertTrue(classes['a'] != classes['b']);
+		classes = classes("(c(a|b)|(b|a)c)");
+		assertEquals(classes['a'], classes['b']);
+		assertTrue(classes['a'] != classes['c']);
+	}
+
+	@Test
+	void classesAreThoseTheExpressionCannotTellApart() {
+		for (int seed = 0; seed < 300; seed++) {
+			Expressions generator = new Expressions(seed, ALPHABET);
+			String expression = expression(seed);
+			RegularExpression re = Expressions.parse(ALPHABET, expression);
+			re.buildSymbolClasses();
+			NaiveMatcher matcher = NaiveMatcher.parse(ALPHABET, expression);
+			for (int i = 0; i < ALPHABET.length(); i++) {
+				for (int j = i + 1; j < ALPHABET.length(); j++) {
+					char c = ALPHABET.charAt(i), d = ALPHABET.charAt(j);
+					if (re.symbolIndex[c] != re.symbolIndex[d]) {
+						continue;
+					}
+					for (int n = 0; n < 20; n++) {
+						String input = generator.input(12);
+						assertEquals(matcher.matches(input), matcher
+								.matches(input.replace(c, d)), c + " and " + d
+								+ " in \"" + expression + "\" on \"" + input
+								+ "\"");
+					}
+				}
+			}
+			assertTrue(!re.inAlphabet('x') && !re.inAlphabet('e'), expression);
+
+			DFA dfa = Expressions.dfa(ALPHABET, expression);
+			assertEquals(re.classes.size(), dfa.alphabet.size(), expression);
+			assertEquals((dfa.numStates + 1) * re.classes.size(),
+					dfa.table.length, expression);
+		}
+	}
+
+	@Test
+	void automataAgreeWithNaiveMatcher() throws Exception {
+		for (int seed = 0; seed < 300; seed++) {
+			String expression = expression(seed);
+			Expressions generator = new Expressions(seed, ALPHABET);
+			NaiveMatcher matcher = NaiveMatcher.parse(ALPHABET, expression);
+			DFA dfa = Expressions.dfa(ALPHABET, expression);
+			DFA minimal = RegularExpressionParser.minimize(dfa);
+			LazyDFA lazy = new LazyDFA(Expressions.nfa(ALPHABET, expression),
+					4);
+			BitNFA nfa = new BitNFA(Expressions.nfa(ALPHABET, expression));
+			for (int n = 0; n < 30; n++) {
+				String input = generator.input(12);
+				boolean expected = matcher.matches(input);
+				String message = "\"" + expression + "\" on \"" + input + "\"";
+				assertEquals(expected, dfa.matches(input), message);
+				assertEquals(expected, minimal.matches(input), message);
+				assertEquals(expected, lazy.matches(input), message);
+				assertEquals(expected, nfa.matches(input), message);
+			}
+		}
+	}
+}
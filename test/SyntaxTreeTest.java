@@ -0,0 +1,104 @@
+/*
+ * Checks the one pass parser: the expressions it rejects are those
+ * NaiveMatcher rejects, its trees are in post order, and its time and stack
+ * depth do not grow faster than the expression
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+class SyntaxTreeTest {
+
+	/*
+	 * Purpose: parses an expression
+	 * 
+	 * @return the tree, or null if the parser rejects the expression
+	 */
+	private static SyntaxTree parse(String alphabet, String expression) {
+		try {
+			return RegularExpressionParser.buildSyntaxTree(Expressions.parse(
+					alphabet, expression));
+		} catch (InvalidExpressionException e) {
+			return null;
+		}
+	}
+
+	@Test
+	void rejectsWhatNaiveMatcherRejects() throws Exception {
+		for (Case c : Case.all()) {
+			assertEquals(c.isValid(), parse(c.alphabet, c.expression) != null,
+					c.toString());
+		}
+		for (int seed = 0; seed < 1000; seed++) {
+			String expression = new Expressions(seed, "ab").mutated();
+			assertEquals(NaiveMatcher.parse("ab", expression) != null, parse(
+					"ab", expression) != null, "\"" + expression + "\"");
+		}
+	}
+
+	@Test
+	void treeIsInPostOrder() {
+		for (int seed = 0; seed < 300; seed++) {
+			String expression = new Expressions(seed, "abc").expression();
+			SyntaxTree tree = parse("abc", expression);
+			assertEquals(tree.size - 1, tree.root, expression);
+			int leaves = 0;
+			for (int node = 0; node < tree.size; node++) {
+				assertTrue(tree.left[node] < node && tree.right[node] < node,
+						expression);
+				if (tree.isLeaf(node)) {
+					leaves++;
+					assertTrue("abce".indexOf(tree.data[node]) >= 0, expression);
+				} else {
+					assertTrue("*|@".indexOf(tree.data[node]) >= 0, expression);
+				}
+			}
+			int symbols = expression.replaceAll("[^abce]", "").length();
+			assertEquals(symbols, leaves, expression);
+		}
+	}
+
+	@Test
+	void hugeExpressionsParseInLinearTime() {
+		final StringBuilder expression = new StringBuilder();
+		Expressions generator = new Expressions(0, "abc");
+		while (expression.length() < 2000000) {
+			expression.append('(').append(generator.expression()).append(")*");
+		}
+		assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+			SyntaxTree tree = parse("abc", expression.toString());
+			assertTrue(tree != null && tree.size > 100000);
+		});
+	}
+
+	@Test
+	void deepNestingNeedsNoStack() throws Throwable {
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread thread = new Thread(null, () -> {
+			try {
+				StringBuilder sb = new StringBuilder();
+				for (int i = 0; i < 100000; i++) {
+					sb.append("(a");
+				}
+				for (int i = 0; i < 100000; i++) {
+					sb.append(")*");
+				}
+				SyntaxTree tree = parse("a", sb.toString());
+				assertTrue(tree != null && tree.data[tree.root] == '*');
+			} catch (Throwable e) {
+				failure.set(e);
+			}
+		}, "small stack", 128 * 1024);
+		thread.start();
+		thread.join();
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * Checks the transition table of the DFA against its transition function,
+ * and matching through the table against the results of the original program
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class TransitionTableTest {
+	@Test
+	void tableHoldsTheTransitionFunction() throws Exception {
+		for (Case c : Case.all()) {
+			if (!c.isValid()) {
+				continue;
+			}
+			DFA dfa = Expressions.dfa(c.alphabet, c.expression);
+			assertEquals(dfa.numStates * dfa.alphabet.size(),
+					dfa.transitionFunction.size(), c.toString());
+			int k = dfa.alphabet.size();
+			for (Transition t : dfa.transitionFunction) {
+				assertEquals(t.end, dfa.table[t.start * k
+						+ dfa.symbolIndex[t.input]], c.toString());
+			}
+			for (int q = 1; q <= dfa.numStates; q++) {
+				assertEquals(dfa.endStates.contains(Integer.valueOf(q)),
+						dfa.accept[q], c.toString());
+			}
+		}
+	}
+
+	@Test
+	void testInputAgreesWithTheOriginalProgram() throws Exception {
+		for (Case c : Case.all()) {
+			if (!c.isValid()) {
+				continue;
+			}
+			DFA dfa = Expressions.dfa(c.alphabet, c.expression);
+			for (int i = 0; i < c.inputs.size(); i++) {
+				assertEquals(c.expected.get(i), String
+						.valueOf(RegularExpressionParser.testInput(dfa, c.inputs
+								.get(i))), c + " on \"" + c.inputs.get(i) + "\"");
+			}
+		}
+	}
+
+	@Test
+	void charactersOutsideOfTheAlphabetAreSkipped() {
+		// characters below, between and above those of the alphabet, the
+		// last beyond the end of the symbol index
+		DFA dfa = Expressions.dfa("bd", "(bd)*b");
+		NaiveMatcher matcher = NaiveMatcher.parse("bd", "(bd)*b");
+		for (String input : Arrays.asList("b", "abcdb", "b\u0000d\uffffb",
+				"bdx", "zzz", "ddd", "\u0100bdb", "\u00ffbcd\ud800b")) {
+			assertEquals(matcher.matches(input), RegularExpressionParser
+					.testInput(dfa, input), input);
+		}
+	}
+}